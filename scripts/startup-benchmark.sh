@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+#
+# Copyright (c) 2020 Yookue Ltd. All rights reserved.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     https://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Compares the startup of the sample application on the JVM and as a native image
+#
+# Both sides boot the same context of MockNativeApplicationTest, and the times are the ones reported by Spring Boot:
+# "context" is the time to start the application context, "process" adds the startup of the JVM or the native executable.
+# Requires GraalVM as JAVA_HOME, usage: scripts/startup-benchmark.sh [runs], runs defaults to 5
+
+set -euo pipefail
+
+runs="${1:-5}"
+test_class='MockNativeApplicationTest'
+cd "$(dirname "$0")/.."
+
+# Prints the median of the numbers on stdin
+median() {
+    sort -n | awk '{values[NR] = $1} END {print (NR % 2) ? values[(NR + 1) / 2] : (values[NR / 2] + values[NR / 2 + 1]) / 2}'
+}
+
+# Extracts "<context> <process>" from the startup line of Spring Boot
+startup_times() {
+    sed -n "s/.*Started ${test_class} in \([0-9.]*\) seconds (process running for \([0-9.]*\)).*/\1 \2/p" | tail -n 1
+}
+
+echo "Building the native tests, this takes a few minutes"
+mvn -B -q -Pnative -Dtest="${test_class}" test > target/startup-benchmark-build.log 2>&1
+
+: > target/startup-benchmark-jvm.txt
+: > target/startup-benchmark-native.txt
+for ((i = 1; i <= runs; i++)); do
+    mvn -B -Dmaven.test.skip=false -Dtest="${test_class}" surefire:test 2>&1 | startup_times >> target/startup-benchmark-jvm.txt
+    target/native-tests 2>&1 | startup_times >> target/startup-benchmark-native.txt
+done
+
+printf '%-8s %12s %12s\n' 'mode' 'context (s)' 'process (s)'
+for mode in jvm native; do
+    file="target/startup-benchmark-${mode}.txt"
+    printf '%-8s %12s %12s\n' "${mode}" "$(cut -d ' ' -f 1 "${file}" | median)" "$(cut -d ' ' -f 2 "${file}" | median)"
+done
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.aot;
+
+
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import com.maxmind.db.Metadata;
+import com.maxmind.geoip2.NetworkDeserializer;
+import com.maxmind.geoip2.model.AbstractCityResponse;
+import com.maxmind.geoip2.model.AbstractCountryResponse;
+import com.maxmind.geoip2.model.AbstractResponse;
+import com.maxmind.geoip2.model.AnonymousIpResponse;
+import com.maxmind.geoip2.model.AsnResponse;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.ConnectionTypeResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.maxmind.geoip2.model.DomainResponse;
+import com.maxmind.geoip2.model.EnterpriseResponse;
+import com.maxmind.geoip2.model.InsightsResponse;
+import com.maxmind.geoip2.model.IpBaseResponse;
+import com.maxmind.geoip2.model.IspResponse;
+import com.maxmind.geoip2.record.AbstractNamedRecord;
+import com.maxmind.geoip2.record.AbstractRecord;
+import com.maxmind.geoip2.record.City;
+import com.maxmind.geoip2.record.Continent;
+import com.maxmind.geoip2.record.Country;
+import com.maxmind.geoip2.record.Location;
+import com.maxmind.geoip2.record.MaxMind;
+import com.maxmind.geoip2.record.Postal;
+import com.maxmind.geoip2.record.RepresentedCountry;
+import com.maxmind.geoip2.record.Subdivision;
+import com.maxmind.geoip2.record.Traits;
+
+
+/**
+ * Runtime hints for GEO location, for Spring AOT and GraalVM native images
+ * <p>
+ * Database readers create models through their annotated constructors, and the web service client creates models through Jackson,
+ * both of which reflect over the model and record classes. Neither of them needs JDK proxies.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.config.GeoLocationAutoConfiguration
+ */
+@SuppressWarnings("unused")
+public class GeoLocationRuntimeHints implements RuntimeHintsRegistrar {
+    /**
+     * Model and record classes that are created or serialized reflectively
+     */
+    public static final List<Class<?>> REFLECTIVE_TYPES = List.of(
+        AbstractResponse.class, AbstractCountryResponse.class, AbstractCityResponse.class, IpBaseResponse.class,
+        AnonymousIpResponse.class, AsnResponse.class, CityResponse.class, ConnectionTypeResponse.class, ConnectionTypeResponse.ConnectionType.class,
+        CountryResponse.class, DomainResponse.class, EnterpriseResponse.class, InsightsResponse.class, IspResponse.class,
+        AbstractRecord.class, AbstractNamedRecord.class, City.class, Continent.class, Country.class, Location.class,
+        MaxMind.class, Postal.class, RepresentedCountry.class, Subdivision.class, Traits.class,
+        Metadata.class, NetworkDeserializer.class
+    );
+
+    /**
+     * Log pattern converters that are created reflectively by the logging systems, referenced by names as the logging systems are optional
+     */
+    public static final List<String> CONVERTER_TYPES = List.of("com.yookue.springstarter.geolocation.logging.GeoLogbackConverter", "com.yookue.springstarter.geolocation.logging.GeoLog4j2Converter");    // $NON-NLS-1$ // $NON-NLS-2$
+
+    /**
+     * Patterns of database resources under the classpath
+     */
+    public static final List<String> RESOURCE_PATTERNS = List.of("*.mmdb", "*.mmdb.gz", "*.tar.gz", "*.tgz", "**/*.mmdb", "**/*.mmdb.gz", "**/*.tar.gz", "**/*.tgz");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$
+
+    @Override
+    public void registerHints(@Nonnull RuntimeHints hints, @Nullable ClassLoader classLoader) {
+        for (Class<?> type : REFLECTIVE_TYPES) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+        }
+        for (String type : CONVERTER_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        for (String pattern : RESOURCE_PATTERNS) {
+            hints.resources().registerPattern(pattern);
+        }
+    }
+}
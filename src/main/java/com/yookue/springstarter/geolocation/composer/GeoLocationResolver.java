@@ -18,13 +18,25 @@ package com.yookue.springstarter.geolocation.composer;
 
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Locale;
+import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.CharUtils;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.AnonymousIpResponse;
+import com.yookue.commonplexus.javaseutil.constant.CharVariantConst;
+import com.yookue.springstarter.geolocation.enumeration.GeoLookupStatus;
+import com.yookue.springstarter.geolocation.exception.GeoRemoteUnavailableException;
+import com.yookue.springstarter.geolocation.model.GeoLookupResult;
+import com.yookue.springstarter.geolocation.util.GeoAddressUtils;
 
 
 /**
  * Composer interface for {@link com.maxmind.geoip2.DatabaseReader} and {@link com.maxmind.geoip2.WebServiceClient}
+ * <p>
+ * The status lookups, appending and anonymous ip methods have default implementations on top of the throwing methods,
+ * which cannot tell lan addresses or local errors apart, implementations should override them where they can.
  *
  * @author David Hsing
  */
@@ -54,6 +66,57 @@ public interface GeoLocationResolver {
 
     String getCompositeAddressQuietly(@Nullable String ipAddress, @Nullable String delimiter, @Nullable Locale locale);
 
+    /**
+     * Appends the country name and the city name of the ip address to the target, with a status instead of an exception
+     * <p>
+     * Same as {@link #getCompositeAddress(String, String, Locale)}, but no composite string is built, and nothing is appended unless found
+     *
+     * @param ipAddress the ip address literal, host names are not resolved
+     * @param target the target to append to
+     * @param delimiter the delimiter between the country name and the city name
+     * @param locale the locale of the names
+     *
+     * @return the status of the lookup
+     */
+    @Nonnull
+    default GeoLookupStatus appendCompositeAddress(@Nullable String ipAddress, @Nonnull Appendable target, @Nullable String delimiter, @Nullable Locale locale) throws IOException {
+        GeoLookupResult result = lookupLocation(ipAddress, locale);
+        if (result.isFound()) {
+            target.append(result.getCompositeAddress(delimiter));
+        }
+        return result.getStatus();
+    }
+
+    @Nonnull
+    default GeoLookupStatus appendCompositeAddress(@Nullable String ipAddress, @Nonnull Appendable target, char delimiter, @Nullable Locale locale) throws IOException {
+        return appendCompositeAddress(ipAddress, target, CharUtils.toString(delimiter), locale);
+    }
+
+    @Nonnull
+    default GeoLookupStatus appendCompositeAddress(@Nullable String ipAddress, @Nonnull StringBuilder target) {
+        return appendCompositeAddress(ipAddress, target, (Locale) null);
+    }
+
+    @Nonnull
+    default GeoLookupStatus appendCompositeAddress(@Nullable String ipAddress, @Nonnull StringBuilder target, @Nullable Locale locale) {
+        return appendCompositeAddress(ipAddress, target, CharVariantConst.SLASH, locale);
+    }
+
+    @Nonnull
+    default GeoLookupStatus appendCompositeAddress(@Nullable String ipAddress, @Nonnull StringBuilder target, char delimiter, @Nullable Locale locale) {
+        return appendCompositeAddress(ipAddress, target, CharUtils.toString(delimiter), locale);
+    }
+
+    @Nonnull
+    default GeoLookupStatus appendCompositeAddress(@Nullable String ipAddress, @Nonnull StringBuilder target, @Nullable String delimiter, @Nullable Locale locale) {
+        try {
+            return appendCompositeAddress(ipAddress, (Appendable) target, delimiter, locale);
+        } catch (IOException ex) {
+            // Never happens, StringBuilder does not throw
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     String getCountryName(@Nullable String ipAddress) throws IOException, GeoIp2Exception;
 
     String getCountryName(@Nullable String ipAddress, @Nullable Locale locale) throws IOException, GeoIp2Exception;
@@ -69,4 +132,105 @@ public interface GeoLocationResolver {
     String getCityNameQuietly(@Nullable String ipAddress);
 
     String getCityNameQuietly(@Nullable String ipAddress, @Nullable Locale locale);
+
+    /**
+     * Returns the country name and the city name of the ip address, with a status instead of an exception
+     * <p>
+     * Same as {@link #getCompositeAddress(String, String, Locale)}, the local readers take precedence over the remote site
+     *
+     * @param ipAddress the ip address literal, host names are not resolved
+     *
+     * @return the country name and the city name of the ip address, with a status instead of an exception
+     */
+    @Nonnull
+    default GeoLookupResult lookupLocation(@Nullable String ipAddress) {
+        return lookupLocation(ipAddress, null);
+    }
+
+    @Nonnull
+    default GeoLookupResult lookupLocation(@Nullable String ipAddress, @Nullable Locale locale) {
+        if (GeoAddressUtils.parseLiteral(ipAddress) == null) {
+            return GeoLookupResult.INVALID_INPUT;
+        }
+        try {
+            return GeoLookupResult.found(getCountryName(ipAddress, locale), getCityName(ipAddress, locale));
+        } catch (GeoRemoteUnavailableException ignored) {
+            return GeoLookupResult.REMOTE_UNAVAILABLE;
+        } catch (Exception ignored) {
+            return GeoLookupResult.LOCAL_ERROR;
+        }
+    }
+
+    /**
+     * Returns the country name of the ip address, with a status instead of an exception
+     *
+     * @param ipAddress the ip address literal, host names are not resolved
+     *
+     * @return the country name of the ip address, with a status instead of an exception
+     */
+    @Nonnull
+    default GeoLookupResult lookupCountry(@Nullable String ipAddress) {
+        return lookupCountry(ipAddress, null);
+    }
+
+    @Nonnull
+    default GeoLookupResult lookupCountry(@Nullable String ipAddress, @Nullable Locale locale) {
+        if (GeoAddressUtils.parseLiteral(ipAddress) == null) {
+            return GeoLookupResult.INVALID_INPUT;
+        }
+        try {
+            return GeoLookupResult.found(getCountryName(ipAddress, locale), null);
+        } catch (GeoRemoteUnavailableException ignored) {
+            return GeoLookupResult.REMOTE_UNAVAILABLE;
+        } catch (Exception ignored) {
+            return GeoLookupResult.LOCAL_ERROR;
+        }
+    }
+
+    /**
+     * Returns the city name of the ip address, with a status instead of an exception
+     *
+     * @param ipAddress the ip address literal, host names are not resolved
+     *
+     * @return the city name of the ip address, with a status instead of an exception
+     */
+    @Nonnull
+    default GeoLookupResult lookupCity(@Nullable String ipAddress) {
+        return lookupCity(ipAddress, null);
+    }
+
+    @Nonnull
+    default GeoLookupResult lookupCity(@Nullable String ipAddress, @Nullable Locale locale) {
+        if (GeoAddressUtils.parseLiteral(ipAddress) == null) {
+            return GeoLookupResult.INVALID_INPUT;
+        }
+        try {
+            return GeoLookupResult.found(null, getCityName(ipAddress, locale));
+        } catch (GeoRemoteUnavailableException ignored) {
+            return GeoLookupResult.REMOTE_UNAVAILABLE;
+        } catch (Exception ignored) {
+            return GeoLookupResult.LOCAL_ERROR;
+        }
+    }
+
+    /**
+     * Returns the anonymous ip information of the ip address, from the local anonymous ip database only
+     * <p>
+     * The database is loaded on the first call, other databases are never touched
+     *
+     * @param ipAddress the ip address literal, host names are not resolved
+     *
+     * @return the anonymous ip information of the ip address, or {@code null} if not found or no anonymous ip database
+     */
+    default AnonymousIpResponse getAnonymousIp(@Nullable String ipAddress) throws IOException, GeoIp2Exception {
+        return null;
+    }
+
+    default AnonymousIpResponse getAnonymousIpQuietly(@Nullable String ipAddress) {
+        try {
+            return getAnonymousIp(ipAddress);
+        } catch (Exception ignored) {
+        }
+        return null;
+    }
 }
@@ -19,24 +19,31 @@ package com.yookue.springstarter.geolocation.composer.impl;
 
 import java.io.IOException;
 import java.net.InetAddress;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.CharUtils;
 import org.apache.commons.lang3.LocaleUtils;
-import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.WebServiceClient;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.AnonymousIpResponse;
 import com.maxmind.geoip2.model.CityResponse;
 import com.maxmind.geoip2.model.CountryResponse;
 import com.yookue.commonplexus.javaseutil.constant.CharVariantConst;
-import com.yookue.commonplexus.javaseutil.util.InetAddressWraps;
 import com.yookue.springstarter.geolocation.composer.GeoLocationResolver;
+import com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType;
+import com.yookue.springstarter.geolocation.enumeration.GeoLookupStatus;
+import com.yookue.springstarter.geolocation.exception.GeoRemoteUnavailableException;
+import com.yookue.springstarter.geolocation.model.GeoLookupResult;
+import com.yookue.springstarter.geolocation.provider.GeoRemoteProvider;
+import com.yookue.springstarter.geolocation.provider.impl.WebServiceRemoteProvider;
+import com.yookue.springstarter.geolocation.support.GeoDatabaseRegistry;
+import com.yookue.springstarter.geolocation.util.GeoAddressUtils;
 import lombok.AllArgsConstructor;
 
 
@@ -50,11 +57,18 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 @SuppressWarnings("unused")
 public class DefaultGeoLocationResolver implements GeoLocationResolver {
-    private DatabaseReader countryReader;
-    private DatabaseReader cityReader;
-    private WebServiceClient webClient;
+    private static final Map<Locale, String[]> localeTags = new ConcurrentHashMap<>();
+
+    private GeoDatabaseRegistry databaseRegistry;
+    private GeoRemoteProvider remoteProvider;
     private boolean discardLan;
 
+    public DefaultGeoLocationResolver(@Nullable DatabaseReader countryReader, @Nullable DatabaseReader cityReader, @Nullable WebServiceClient webClient, boolean discardLan) {
+        this(new GeoDatabaseRegistry(), (webClient == null) ? null : new WebServiceRemoteProvider(webClient), discardLan);
+        databaseRegistry.register(GeoDatabaseType.COUNTRY, countryReader);
+        databaseRegistry.register(GeoDatabaseType.CITY, cityReader);
+    }
+
     @Override
     public String getCompositeAddress(@Nullable String ipAddress) throws IOException, GeoIp2Exception {
         return getCompositeAddress(ipAddress, (Locale) null);
@@ -82,34 +96,33 @@ public class DefaultGeoLocationResolver implements GeoLocationResolver {
 
     @Override
     public String getCompositeAddress(@Nullable String ipAddress, @Nullable String delimiter, @Nullable Locale locale) throws IOException, GeoIp2Exception {
-        if (StringUtils.isBlank(ipAddress) || (discardLan && InetAddressWraps.isLanAddress(ipAddress)) || ObjectUtils.allNull(countryReader, cityReader, webClient)) {
+        if (StringUtils.isBlank(ipAddress) || (!hasLocal(GeoDatabaseType.COUNTRY) && !hasLocal(GeoDatabaseType.CITY) && remoteProvider == null)) {
             return null;
         }
         InetAddress inetAddress = InetAddress.getByName(ipAddress);
+        if (discardLan && GeoAddressUtils.isLanAddress(inetAddress)) {
+            return null;
+        }
         String countryName = null, cityName = null;
-        if (countryReader != null) {
-            Optional<CountryResponse> countryResponse = countryReader.tryCountry(inetAddress);
-            if (countryResponse != null && countryResponse.isPresent()) {
-                countryName = getLocalizedCountryName(countryResponse.get(), locale);
-            }
+        Optional<CountryResponse> countryResponse = tryLocalCountry(inetAddress);
+        if (countryResponse != null && countryResponse.isPresent()) {
+            countryName = getLocalizedCountryName(countryResponse.get(), locale);
         }
-        if (cityReader != null) {
-            Optional<CityResponse> cityResponse = cityReader.tryCity(inetAddress);
-            if (cityResponse != null && cityResponse.isPresent()) {
-                cityName = getLocalizedCityName(cityResponse.get(), locale);
-            }
+        Optional<CityResponse> cityResponse = tryLocalCity(inetAddress);
+        if (cityResponse != null && cityResponse.isPresent()) {
+            cityName = getLocalizedCityName(cityResponse.get(), locale);
         }
-        if (ObjectUtils.anyNotNull(countryReader, cityReader)) {
+        if (hasLocal(GeoDatabaseType.COUNTRY) || hasLocal(GeoDatabaseType.CITY)) {
             return StringUtils.isAllBlank(countryName, cityName) ? null : StringUtils.joinWith(StringUtils.defaultString(delimiter), countryName, cityName);
         }
-        if (webClient != null) {
-            CountryResponse countryResponse = webClient.country(inetAddress);
-            if (countryResponse != null) {
-                countryName = getLocalizedCountryName(countryResponse, locale);
+        if (remoteProvider != null) {
+            countryResponse = remoteProvider.tryCountry(inetAddress);
+            if (countryResponse != null && countryResponse.isPresent()) {
+                countryName = getLocalizedCountryName(countryResponse.get(), locale);
             }
-            CityResponse cityResponse = webClient.city(inetAddress);
-            if (cityResponse != null) {
-                cityName = getLocalizedCityName(cityResponse, locale);
+            cityResponse = remoteProvider.tryCity(inetAddress);
+            if (cityResponse != null && cityResponse.isPresent()) {
+                cityName = getLocalizedCityName(cityResponse.get(), locale);
             }
             return StringUtils.isAllBlank(countryName, cityName) ? null : StringUtils.joinWith(StringUtils.defaultString(delimiter), countryName, cityName);
         }
@@ -143,11 +156,44 @@ public class DefaultGeoLocationResolver implements GeoLocationResolver {
 
     @Override
     public String getCompositeAddressQuietly(@Nullable String ipAddress, @Nullable String delimiter, @Nullable Locale locale) {
+        return lookupLocation(ipAddress, locale).getCompositeAddress(delimiter);
+    }
+
+    @Nonnull
+    @Override
+    public GeoLookupStatus appendCompositeAddress(@Nullable String ipAddress, @Nonnull Appendable target, @Nullable String delimiter, @Nullable Locale locale) throws IOException {
+        if (!hasLocal(GeoDatabaseType.COUNTRY) && !hasLocal(GeoDatabaseType.CITY) && remoteProvider == null) {
+            return GeoLookupStatus.NOT_FOUND;
+        }
+        InetAddress inetAddress = GeoAddressUtils.parseLiteral(ipAddress);
+        GeoLookupResult rejection = checkAddress(inetAddress);
+        if (rejection != null) {
+            return rejection.getStatus();
+        }
+        boolean local = hasLocal(GeoDatabaseType.COUNTRY) || hasLocal(GeoDatabaseType.CITY);
+        String countryName, cityName;
         try {
-            return getCompositeAddress(ipAddress, delimiter, locale);
+            countryName = findCountryName(inetAddress, locale, local);
+            cityName = findCityName(inetAddress, locale, local);
+        } catch (GeoRemoteUnavailableException ignored) {
+            return GeoLookupStatus.REMOTE_UNAVAILABLE;
         } catch (Exception ignored) {
+            return local ? GeoLookupStatus.LOCAL_ERROR : GeoLookupStatus.REMOTE_ERROR;
         }
-        return null;
+        if (StringUtils.isAllBlank(countryName, cityName)) {
+            return GeoLookupStatus.NOT_FOUND;
+        }
+        // Same output as StringUtils.joinWith, without building a string
+        if (countryName != null) {
+            target.append(countryName);
+        }
+        if (delimiter != null) {
+            target.append(delimiter);
+        }
+        if (cityName != null) {
+            target.append(cityName);
+        }
+        return GeoLookupStatus.FOUND;
     }
 
     @Override
@@ -157,20 +203,23 @@ public class DefaultGeoLocationResolver implements GeoLocationResolver {
 
     @Override
     public String getCountryName(@Nullable String ipAddress, @Nullable Locale locale) throws IOException, GeoIp2Exception {
-        if (StringUtils.isBlank(ipAddress) || (discardLan && InetAddressWraps.isLanAddress(ipAddress)) || ObjectUtils.allNull(countryReader, webClient)) {
+        if (StringUtils.isBlank(ipAddress) || (!hasLocal(GeoDatabaseType.COUNTRY) && remoteProvider == null)) {
             return null;
         }
         InetAddress inetAddress = InetAddress.getByName(ipAddress);
-        if (countryReader != null) {
-            Optional<CountryResponse> countryResponse = countryReader.tryCountry(inetAddress);
+        if (discardLan && GeoAddressUtils.isLanAddress(inetAddress)) {
+            return null;
+        }
+        Optional<CountryResponse> countryResponse = tryLocalCountry(inetAddress);
+        if (countryResponse != null && countryResponse.isPresent()) {
+            return getLocalizedCountryName(countryResponse.get(), locale);
+        }
+        if (remoteProvider != null) {
+            countryResponse = remoteProvider.tryCountry(inetAddress);
             if (countryResponse != null && countryResponse.isPresent()) {
                 return getLocalizedCountryName(countryResponse.get(), locale);
             }
         }
-        if (webClient != null) {
-            CountryResponse countryResponse = webClient.country(inetAddress);
-            return getLocalizedCountryName(countryResponse, locale);
-        }
         return null;
     }
 
@@ -181,11 +230,7 @@ public class DefaultGeoLocationResolver implements GeoLocationResolver {
 
     @Override
     public String getCountryNameQuietly(@Nullable String ipAddress, @Nullable Locale locale) {
-        try {
-            return getCountryName(ipAddress, locale);
-        } catch (Exception ignored) {
-        }
-        return null;
+        return lookupCountry(ipAddress, locale).getCountryName();
     }
 
     @Override
@@ -195,20 +240,23 @@ public class DefaultGeoLocationResolver implements GeoLocationResolver {
 
     @Override
     public String getCityName(@Nullable String ipAddress, @Nullable Locale locale) throws IOException, GeoIp2Exception {
-        if (StringUtils.isBlank(ipAddress) || (discardLan && InetAddressWraps.isLanAddress(ipAddress)) || ObjectUtils.allNull(cityReader, webClient)) {
+        if (StringUtils.isBlank(ipAddress) || (!hasLocal(GeoDatabaseType.CITY) && remoteProvider == null)) {
             return null;
         }
         InetAddress inetAddress = InetAddress.getByName(ipAddress);
-        if (cityReader != null) {
-            Optional<CityResponse> cityResponse = cityReader.tryCity(inetAddress);
+        if (discardLan && GeoAddressUtils.isLanAddress(inetAddress)) {
+            return null;
+        }
+        Optional<CityResponse> cityResponse = tryLocalCity(inetAddress);
+        if (cityResponse != null && cityResponse.isPresent()) {
+            return getLocalizedCityName(cityResponse.get(), locale);
+        }
+        if (remoteProvider != null) {
+            cityResponse = remoteProvider.tryCity(inetAddress);
             if (cityResponse != null && cityResponse.isPresent()) {
                 return getLocalizedCityName(cityResponse.get(), locale);
             }
         }
-        if (webClient != null) {
-            CityResponse cityResponse = webClient.city(inetAddress);
-            return getLocalizedCityName(cityResponse, locale);
-        }
         return null;
     }
 
@@ -219,11 +267,163 @@ public class DefaultGeoLocationResolver implements GeoLocationResolver {
 
     @Override
     public String getCityNameQuietly(@Nullable String ipAddress, @Nullable Locale locale) {
+        return lookupCity(ipAddress, locale).getCityName();
+    }
+
+    @Nonnull
+    @Override
+    public GeoLookupResult lookupLocation(@Nullable String ipAddress, @Nullable Locale locale) {
+        if (!hasLocal(GeoDatabaseType.COUNTRY) && !hasLocal(GeoDatabaseType.CITY) && remoteProvider == null) {
+            return GeoLookupResult.NOT_FOUND;
+        }
+        InetAddress inetAddress = GeoAddressUtils.parseLiteral(ipAddress);
+        GeoLookupResult rejection = checkAddress(inetAddress);
+        if (rejection != null) {
+            return rejection;
+        }
+        boolean local = hasLocal(GeoDatabaseType.COUNTRY) || hasLocal(GeoDatabaseType.CITY);
         try {
-            return getCityName(ipAddress, locale);
+            return GeoLookupResult.found(findCountryName(inetAddress, locale, local), findCityName(inetAddress, locale, local));
+        } catch (GeoRemoteUnavailableException ignored) {
+            return GeoLookupResult.REMOTE_UNAVAILABLE;
         } catch (Exception ignored) {
+            return local ? GeoLookupResult.LOCAL_ERROR : GeoLookupResult.REMOTE_ERROR;
         }
-        return null;
+    }
+
+    @Nonnull
+    @Override
+    public GeoLookupResult lookupCountry(@Nullable String ipAddress, @Nullable Locale locale) {
+        if (!hasLocal(GeoDatabaseType.COUNTRY) && remoteProvider == null) {
+            return GeoLookupResult.NOT_FOUND;
+        }
+        InetAddress inetAddress = GeoAddressUtils.parseLiteral(ipAddress);
+        GeoLookupResult rejection = checkAddress(inetAddress);
+        if (rejection != null) {
+            return rejection;
+        }
+        try {
+            Optional<CountryResponse> countryResponse = tryLocalCountry(inetAddress);
+            if (countryResponse != null && countryResponse.isPresent()) {
+                return GeoLookupResult.found(getLocalizedCountryName(countryResponse.get(), locale), null);
+            }
+        } catch (Exception ignored) {
+            return GeoLookupResult.LOCAL_ERROR;
+        }
+        if (remoteProvider != null) {
+            try {
+                Optional<CountryResponse> countryResponse = remoteProvider.tryCountry(inetAddress);
+                if (countryResponse != null && countryResponse.isPresent()) {
+                    return GeoLookupResult.found(getLocalizedCountryName(countryResponse.get(), locale), null);
+                }
+            } catch (GeoRemoteUnavailableException ignored) {
+                return GeoLookupResult.REMOTE_UNAVAILABLE;
+            } catch (Exception ignored) {
+                return GeoLookupResult.REMOTE_ERROR;
+            }
+        }
+        return GeoLookupResult.NOT_FOUND;
+    }
+
+    @Nonnull
+    @Override
+    public GeoLookupResult lookupCity(@Nullable String ipAddress, @Nullable Locale locale) {
+        if (!hasLocal(GeoDatabaseType.CITY) && remoteProvider == null) {
+            return GeoLookupResult.NOT_FOUND;
+        }
+        InetAddress inetAddress = GeoAddressUtils.parseLiteral(ipAddress);
+        GeoLookupResult rejection = checkAddress(inetAddress);
+        if (rejection != null) {
+            return rejection;
+        }
+        try {
+            Optional<CityResponse> cityResponse = tryLocalCity(inetAddress);
+            if (cityResponse != null && cityResponse.isPresent()) {
+                return GeoLookupResult.found(null, getLocalizedCityName(cityResponse.get(), locale));
+            }
+        } catch (Exception ignored) {
+            return GeoLookupResult.LOCAL_ERROR;
+        }
+        if (remoteProvider != null) {
+            try {
+                Optional<CityResponse> cityResponse = remoteProvider.tryCity(inetAddress);
+                if (cityResponse != null && cityResponse.isPresent()) {
+                    return GeoLookupResult.found(null, getLocalizedCityName(cityResponse.get(), locale));
+                }
+            } catch (GeoRemoteUnavailableException ignored) {
+                return GeoLookupResult.REMOTE_UNAVAILABLE;
+            } catch (Exception ignored) {
+                return GeoLookupResult.REMOTE_ERROR;
+            }
+        }
+        return GeoLookupResult.NOT_FOUND;
+    }
+
+    @Override
+    public AnonymousIpResponse getAnonymousIp(@Nullable String ipAddress) throws IOException, GeoIp2Exception {
+        if (!hasLocal(GeoDatabaseType.ANONYMOUS_IP)) {
+            return null;
+        }
+        InetAddress inetAddress = GeoAddressUtils.parseLiteral(ipAddress);
+        if (checkAddress(inetAddress) != null) {
+            return null;
+        }
+        DatabaseReader reader = databaseRegistry.getReader(GeoDatabaseType.ANONYMOUS_IP);
+        Optional<AnonymousIpResponse> response = (reader == null) ? null : reader.tryAnonymousIp(inetAddress);
+        return (response == null) ? null : response.orElse(null);
+    }
+
+    private boolean hasLocal(@Nonnull GeoDatabaseType type) {
+        return databaseRegistry != null && databaseRegistry.contains(type);
+    }
+
+    /**
+     * Returns the local country response, or {@code null} if no local country database
+     */
+    @Nullable
+    @SuppressWarnings("OptionalAssignedToNull")
+    private Optional<CountryResponse> tryLocalCountry(@Nonnull InetAddress inetAddress) throws IOException, GeoIp2Exception {
+        DatabaseReader reader = (databaseRegistry == null) ? null : databaseRegistry.getReader(GeoDatabaseType.COUNTRY);
+        return (reader == null) ? null : reader.tryCountry(inetAddress);
+    }
+
+    /**
+     * Returns the local city response, or {@code null} if no local city database
+     */
+    @Nullable
+    @SuppressWarnings("OptionalAssignedToNull")
+    private Optional<CityResponse> tryLocalCity(@Nonnull InetAddress inetAddress) throws IOException, GeoIp2Exception {
+        DatabaseReader reader = (databaseRegistry == null) ? null : databaseRegistry.getReader(GeoDatabaseType.CITY);
+        return (reader == null) ? null : reader.tryCity(inetAddress);
+    }
+
+    /**
+     * Returns the country name from the local databases, or from the remote site if no local databases
+     */
+    @Nullable
+    private String findCountryName(@Nonnull InetAddress inetAddress, @Nullable Locale locale, boolean local) throws IOException, GeoIp2Exception {
+        Optional<CountryResponse> response = local ? tryLocalCountry(inetAddress) : remoteProvider.tryCountry(inetAddress);
+        return (response != null && response.isPresent()) ? getLocalizedCountryName(response.get(), locale) : null;
+    }
+
+    /**
+     * Returns the city name from the local databases, or from the remote site if no local databases
+     */
+    @Nullable
+    private String findCityName(@Nonnull InetAddress inetAddress, @Nullable Locale locale, boolean local) throws IOException, GeoIp2Exception {
+        Optional<CityResponse> response = local ? tryLocalCity(inetAddress) : remoteProvider.tryCity(inetAddress);
+        return (response != null && response.isPresent()) ? getLocalizedCityName(response.get(), locale) : null;
+    }
+
+    /**
+     * Returns the result that rejects the address, or {@code null} if the address is acceptable
+     */
+    @Nullable
+    private GeoLookupResult checkAddress(@Nullable InetAddress inetAddress) {
+        if (inetAddress == null) {
+            return GeoLookupResult.INVALID_INPUT;
+        }
+        return (discardLan && GeoAddressUtils.isLanAddress(inetAddress)) ? GeoLookupResult.LAN_DISCARDED : null;
     }
 
     @Nullable
@@ -247,12 +447,20 @@ public class DefaultGeoLocationResolver implements GeoLocationResolver {
         if (names == null || names.isEmpty()) {
             return null;
         }
-        List<Locale> lookups = LocaleUtils.localeLookupList(locale);
-        for (Locale lookup : lookups) {
-            if (names.containsKey(lookup.toLanguageTag())) {
-                return names.get(lookup.toLanguageTag());
+        for (String tag : getLocaleTags(locale)) {
+            String name = names.get(tag);
+            if (name != null) {
+                return name;
             }
         }
         return null;
     }
+
+    /**
+     * Returns the language tags of the locale lookup list, computed once per locale
+     */
+    @Nonnull
+    private static String[] getLocaleTags(@Nonnull Locale locale) {
+        return localeTags.computeIfAbsent(locale, key -> LocaleUtils.localeLookupList(key).stream().map(Locale::toLanguageTag).distinct().toArray(String[]::new));
+    }
 }
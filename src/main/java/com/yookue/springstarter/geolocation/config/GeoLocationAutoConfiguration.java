@@ -19,24 +19,43 @@ package com.yookue.springstarter.geolocation.config;
 
 import java.io.IOException;
 import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.util.CollectionUtils;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.WebServiceClient;
 import com.yookue.commonplexus.javaseutil.util.InetProxyWraps;
 import com.yookue.commonplexus.javaseutil.util.NumberUtilsWraps;
 import com.yookue.commonplexus.springcondition.annotation.ConditionalOnAllProperties;
+import com.yookue.springstarter.geolocation.aot.GeoLocationRuntimeHints;
 import com.yookue.springstarter.geolocation.composer.GeoLocationResolver;
 import com.yookue.springstarter.geolocation.composer.impl.DefaultGeoLocationResolver;
+import com.yookue.springstarter.geolocation.enricher.GeoLogEnricher;
 import com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType;
+import com.yookue.springstarter.geolocation.logging.GeoLogLocator;
 import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
-import com.yookue.springstarter.geolocation.util.GeoDatabaseUtils;
+import com.yookue.springstarter.geolocation.provider.GeoRemoteProvider;
+import com.yookue.springstarter.geolocation.provider.impl.CachingRemoteProvider;
+import com.yookue.springstarter.geolocation.provider.impl.HedgingRemoteProvider;
+import com.yookue.springstarter.geolocation.provider.impl.LimitingRemoteProvider;
+import com.yookue.springstarter.geolocation.provider.impl.WebServiceRemoteProvider;
+import com.yookue.springstarter.geolocation.support.GeoDatabaseRegistry;
+import com.yookue.springstarter.geolocation.support.GeoRemoteLimiter;
+import com.yookue.springstarter.geolocation.support.GeoRemoteLimiterMetrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 
@@ -50,44 +69,65 @@ import jakarta.annotation.Nullable;
  */
 @Configuration(proxyBeanMethods = false)
 @EnableConfigurationProperties(value = GeoLocationProperties.class)
+@ImportRuntimeHints(value = GeoLocationRuntimeHints.class)
 @ConditionalOnProperty(prefix = GeoLocationAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
 @SuppressWarnings({"JavadocDeclaration", "JavadocLinkAsPlainText"})
 public class GeoLocationAutoConfiguration {
     public static final String PROPERTIES_PREFIX = "spring.geo-location";    // $NON-NLS-1$
+    public static final String DATABASE_REGISTRY = "geoDatabaseRegistry";    // $NON-NLS-1$
     public static final String COUNTRY_DATABASE_READER = "geoCountryDatabaseReader";    // $NON-NLS-1$
     public static final String CITY_DATABASE_READER = "geoCityDatabaseReader";    // $NON-NLS-1$
     public static final String ASN_DATABASE_READER = "geoAsnDatabaseReader";    // $NON-NLS-1$
     public static final String WEB_SERVICE_CLIENT = "geoWebServiceClient";    // $NON-NLS-1$
+    public static final String REMOTE_LIMITER = "geoRemoteLimiter";    // $NON-NLS-1$
+    public static final String REMOTE_PROVIDER = "geoRemoteProvider";    // $NON-NLS-1$
     public static final String LOCATION_RESOLVER = "geoLocationResolver";    // $NON-NLS-1$
+    public static final String LOG_ENRICHER = "geoLogEnricher";    // $NON-NLS-1$
+    public static final String LOG_LOCATOR = "geoLogLocator";    // $NON-NLS-1$
 
-    @Bean(name = COUNTRY_DATABASE_READER)
+    @Bean(name = DATABASE_REGISTRY)
+    @ConditionalOnMissingBean(name = DATABASE_REGISTRY)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".local-file", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public GeoDatabaseRegistry databaseRegistry(@Nonnull GeoLocationProperties properties, @Nonnull BeanFactory beanFactory) throws IOException {
+        GeoDatabaseRegistry registry = new GeoDatabaseRegistry(properties.getLocalFile());
+        // Reader beans, either the ones below or the ones of users, are looked up on the first use
+        registerReaderBean(registry, beanFactory, GeoDatabaseType.COUNTRY, COUNTRY_DATABASE_READER);
+        registerReaderBean(registry, beanFactory, GeoDatabaseType.CITY, CITY_DATABASE_READER);
+        registerReaderBean(registry, beanFactory, GeoDatabaseType.ASN, ASN_DATABASE_READER);
+        return registry;
+    }
+
+    @Bean(name = COUNTRY_DATABASE_READER, destroyMethod = "")
+    @Lazy
     @ConditionalOnMissingBean(name = COUNTRY_DATABASE_READER)
     @ConditionalOnAllProperties(value = {
         @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".local-file", name = "enabled", havingValue = "true", matchIfMissing = true),
         @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".local-file", name = "country-db")
     })
-    public DatabaseReader countryDatabaseReader(@Nonnull GeoLocationProperties properties) throws IOException {
-        return GeoDatabaseUtils.getDatabaseReader(properties, GeoDatabaseType.COUNTRY);
+    public DatabaseReader countryDatabaseReader(@Nonnull @Qualifier(value = DATABASE_REGISTRY) GeoDatabaseRegistry databaseRegistry) throws IOException {
+        return databaseRegistry.loadReader(GeoDatabaseType.COUNTRY);
     }
 
-    @Bean(name = CITY_DATABASE_READER)
+    @Bean(name = CITY_DATABASE_READER, destroyMethod = "")
+    @Lazy
     @ConditionalOnMissingBean(name = CITY_DATABASE_READER)
     @ConditionalOnAllProperties(value = {
         @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".local-file", name = "enabled", havingValue = "true", matchIfMissing = true),
         @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".local-file", name = "city-db")
     })
-    public DatabaseReader cityDatabaseReader(@Nonnull GeoLocationProperties properties) throws IOException {
-        return GeoDatabaseUtils.getDatabaseReader(properties, GeoDatabaseType.CITY);
+    public DatabaseReader cityDatabaseReader(@Nonnull @Qualifier(value = DATABASE_REGISTRY) GeoDatabaseRegistry databaseRegistry) throws IOException {
+        return databaseRegistry.loadReader(GeoDatabaseType.CITY);
     }
 
-    @Bean(name = ASN_DATABASE_READER)
+    @Bean(name = ASN_DATABASE_READER, destroyMethod = "")
+    @Lazy
     @ConditionalOnMissingBean(name = ASN_DATABASE_READER)
     @ConditionalOnAllProperties(value = {
         @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".local-file", name = "enabled", havingValue = "true", matchIfMissing = true),
         @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".local-file", name = "asn-db")
     })
-    public DatabaseReader asnDatabaseReader(@Nonnull GeoLocationProperties properties) throws IOException {
-        return GeoDatabaseUtils.getDatabaseReader(properties, GeoDatabaseType.ASN);
+    public DatabaseReader asnDatabaseReader(@Nonnull @Qualifier(value = DATABASE_REGISTRY) GeoDatabaseRegistry databaseRegistry) throws IOException {
+        return databaseRegistry.loadReader(GeoDatabaseType.ASN);
     }
 
     @Bean(name = WEB_SERVICE_CLIENT)
@@ -123,9 +163,85 @@ public class GeoLocationAutoConfiguration {
         return builder.build();
     }
 
+    @Bean(name = REMOTE_LIMITER)
+    @ConditionalOnMissingBean(name = REMOTE_LIMITER)
+    @ConditionalOnAllProperties(value = {
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".remote-site", name = "enabled", havingValue = "true", matchIfMissing = true),
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".remote-site", name = {"account-id", "license-key"})
+    })
+    public GeoRemoteLimiter remoteLimiter(@Nonnull GeoLocationProperties properties) {
+        GeoLocationProperties.RemoteSite remoteSite = properties.getRemoteSite();
+        return new GeoRemoteLimiter(remoteSite.getMaxConcurrentRequests(), remoteSite.getMaxRequestsPerSecond());
+    }
+
+    @Bean(name = REMOTE_PROVIDER)
+    @ConditionalOnMissingBean(name = REMOTE_PROVIDER)
+    @ConditionalOnAllProperties(value = {
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".remote-site", name = "enabled", havingValue = "true", matchIfMissing = true),
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".remote-site", name = {"account-id", "license-key"})
+    })
+    public GeoRemoteProvider remoteProvider(@Nonnull GeoLocationProperties properties, @Nonnull @Qualifier(value = WEB_SERVICE_CLIENT) WebServiceClient webClient, @Nullable @Qualifier(value = REMOTE_LIMITER) GeoRemoteLimiter limiter, @Nonnull ObjectProvider<CacheManager> cacheManagers) {
+        GeoLocationProperties.RemoteSite remoteSite = properties.getRemoteSite();
+        GeoRemoteProvider provider = new WebServiceRemoteProvider(webClient);
+        if (limiter != null) {
+            provider = new LimitingRemoteProvider(provider, limiter);
+        }
+        if (BooleanUtils.isTrue(remoteSite.getHedgeEnabled())) {
+            provider = new HedgingRemoteProvider(provider, ObjectUtils.defaultIfNull(remoteSite.getHedgePercentile(), 95D), remoteSite.getHedgeMinDelay(), ObjectUtils.defaultIfNull(remoteSite.getHedgeMaxRatio(), 0.05D), ObjectUtils.defaultIfNull(remoteSite.getHedgeMaxThreads(), 64));
+        }
+        Cache sharedCache = null;
+        if (StringUtils.isNotBlank(remoteSite.getSharedCacheName())) {
+            CacheManager cacheManager = cacheManagers.getIfAvailable();
+            if (cacheManager != null) {
+                sharedCache = cacheManager.getCache(remoteSite.getSharedCacheName());
+            }
+        }
+        if (NumberUtilsWraps.isPositive(remoteSite.getCacheCapacity()) || sharedCache != null) {
+            provider = new CachingRemoteProvider(provider, ObjectUtils.defaultIfNull(remoteSite.getCacheCapacity(), 0), remoteSite.getCacheTtl(), remoteSite.getCacheNotFoundTtl(), sharedCache, remoteSite.getLocales());
+        }
+        return provider;
+    }
+
     @Bean(name = LOCATION_RESOLVER)
     @ConditionalOnMissingBean(name = LOCATION_RESOLVER)
-    public GeoLocationResolver locationResolver(@Nonnull GeoLocationProperties properties, @Nullable @Qualifier(value = COUNTRY_DATABASE_READER) DatabaseReader countryReader, @Nullable @Qualifier(value = CITY_DATABASE_READER) DatabaseReader cityReader, @Nullable @Qualifier(value = WEB_SERVICE_CLIENT) WebServiceClient webClient) {
-        return new DefaultGeoLocationResolver(countryReader, cityReader, webClient, BooleanUtils.isTrue(properties.getDiscardLan()));
+    public GeoLocationResolver locationResolver(@Nonnull GeoLocationProperties properties, @Nullable @Qualifier(value = DATABASE_REGISTRY) GeoDatabaseRegistry databaseRegistry, @Nullable @Qualifier(value = REMOTE_PROVIDER) GeoRemoteProvider remoteProvider) {
+        return new DefaultGeoLocationResolver(databaseRegistry, remoteProvider, BooleanUtils.isTrue(properties.getDiscardLan()));
+    }
+
+    @Bean(name = LOG_ENRICHER)
+    @ConditionalOnMissingBean(name = LOG_ENRICHER)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".log-enricher", name = "enabled", havingValue = "true")
+    public GeoLogEnricher logEnricher(@Nonnull GeoLocationProperties properties, @Nonnull @Qualifier(value = LOCATION_RESOLVER) GeoLocationResolver resolver) {
+        return new GeoLogEnricher(resolver, properties.getLogEnricher());
+    }
+
+    @Bean(name = LOG_LOCATOR)
+    @ConditionalOnMissingBean(name = LOG_LOCATOR)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".log-converter", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public GeoLogLocator logLocator(@Nonnull GeoLocationProperties properties, @Nullable @Qualifier(value = DATABASE_REGISTRY) GeoDatabaseRegistry databaseRegistry) {
+        return new GeoLogLocator(databaseRegistry, BooleanUtils.isTrue(properties.getDiscardLan()), properties.getLogConverter());
+    }
+
+    private static void registerReaderBean(@Nonnull GeoDatabaseRegistry registry, @Nonnull BeanFactory beanFactory, @Nonnull GeoDatabaseType type, @Nonnull String beanName) {
+        if (beanFactory.containsBean(beanName)) {
+            registry.register(type, () -> beanFactory.getBean(beanName, DatabaseReader.class));
+        }
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(value = MeterBinder.class)
+    static class GeoLocationMetricsConfiguration {
+        public static final String REMOTE_LIMITER_METRICS = "geoRemoteLimiterMetrics";    // $NON-NLS-1$
+
+        @Bean(name = REMOTE_LIMITER_METRICS)
+        @ConditionalOnMissingBean(name = REMOTE_LIMITER_METRICS)
+        @ConditionalOnAllProperties(value = {
+            @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".remote-site", name = "enabled", havingValue = "true", matchIfMissing = true),
+            @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".remote-site", name = {"account-id", "license-key"})
+        })
+        public GeoRemoteLimiterMetrics remoteLimiterMetrics(@Nonnull @Qualifier(value = REMOTE_LIMITER) GeoRemoteLimiter limiter) {
+            return new GeoRemoteLimiterMetrics(limiter);
+        }
     }
 }
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.enricher;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import com.yookue.commonplexus.javaseutil.util.NumberUtilsWraps;
+import com.yookue.springstarter.geolocation.composer.GeoLocationResolver;
+import com.yookue.springstarter.geolocation.model.GeoEnrichReport;
+import com.yookue.springstarter.geolocation.model.GeoLookupResult;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+
+
+/**
+ * Enricher that appends the country and city columns to delimited text rows, such as access logs or CSV files
+ * <p>
+ * The input is read in chunks of whole lines through NIO channels. The addresses of each chunk are deduplicated,
+ * and resolved in parallel batches by the {@link com.yookue.springstarter.geolocation.composer.GeoLocationResolver},
+ * while the next chunk is being read. Rows are written in the input order, and at most two chunks are held in memory.
+ * <p>
+ * Each row must be a single line, quoted fields that span lines are not supported. Line endings of the output are normalized to LF.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class GeoLogEnricher {
+    private static final int MAX_PENDING_CHUNKS = 2;
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte QUOTE = '"';
+
+    private final GeoLocationResolver resolver;
+    private final byte delimiter;
+    private final int ipColumn;
+    private final boolean header;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int parallelism;
+    private final Locale locale;
+
+    public GeoLogEnricher(@Nonnull GeoLocationResolver resolver, @Nonnull GeoLocationProperties.LogEnricher properties) {
+        this.resolver = resolver;
+        char separator = ObjectUtils.defaultIfNull(properties.getDelimiter(), ',');
+        if (separator > 0x7F || separator == LINE_FEED || separator == CARRIAGE_RETURN || separator == QUOTE) {
+            throw new IllegalArgumentException("Delimiter of log enricher must be an ASCII character other than line breaks and quotes");
+        }
+        this.delimiter = (byte) separator;
+        this.ipColumn = Math.max(ObjectUtils.defaultIfNull(properties.getIpColumn(), 0), 0);
+        this.header = Boolean.TRUE.equals(properties.getHeader());
+        this.chunkSize = (properties.getChunkSize() != null && properties.getChunkSize().toBytes() > 0L) ? (int) Math.min(properties.getChunkSize().toBytes(), Integer.MAX_VALUE - 8) : 4 << 20;
+        this.batchSize = NumberUtilsWraps.isPositive(properties.getBatchSize()) ? properties.getBatchSize() : 256;
+        this.parallelism = NumberUtilsWraps.isPositive(properties.getParallelism()) ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.locale = properties.getLocale();
+    }
+
+    @Nonnull
+    public GeoEnrichReport enrich(@Nonnull Path input, @Nonnull Path output) throws IOException {
+        try (FileChannel source = FileChannel.open(input, StandardOpenOption.READ); FileChannel target = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return enrich(source, target);
+        }
+    }
+
+    /**
+     * Enriches the rows of the input into the output
+     *
+     * @param input the blocking channel to read rows from
+     * @param output the blocking channel to write enriched rows to
+     *
+     * @return the report of this run
+     */
+    @Nonnull
+    public GeoEnrichReport enrich(@Nonnull ReadableByteChannel input, @Nonnull WritableByteChannel output) throws IOException {
+        long startTime = System.nanoTime();
+        long[] counters = new long[3];
+        Deque<Chunk> pendings = new ArrayDeque<>(MAX_PENDING_CHUNKS + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+        try {
+            byte[] remainder = new byte[0];
+            boolean eof = false, first = true;
+            while (!eof) {
+                // Grows only while a line is longer than a chunk
+                int capacity = (remainder.length >= chunkSize) ? remainder.length * 2 : chunkSize;
+                ByteBuffer buffer = ByteBuffer.allocate(capacity);
+                buffer.put(remainder);
+                while (buffer.hasRemaining()) {
+                    if (input.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                byte[] data = buffer.array();
+                int length = buffer.position(), end = length;
+                if (!eof) {
+                    end = lastIndexOf(data, length, LINE_FEED) + 1;
+                    if (end <= 0) {
+                        remainder = Arrays.copyOf(data, length);
+                        continue;
+                    }
+                }
+                remainder = Arrays.copyOfRange(data, end, length);
+                if (end > 0) {
+                    Chunk chunk = new Chunk(data, end, header && first);
+                    first = false;
+                    chunk.resolve(executor);
+                    pendings.add(chunk);
+                }
+                while (pendings.size() >= MAX_PENDING_CHUNKS) {
+                    pendings.poll().write(output, counters);
+                }
+            }
+            while (!pendings.isEmpty()) {
+                pendings.poll().write(output, counters);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new GeoEnrichReport(counters[0], counters[1], counters[2], System.nanoTime() - startTime);
+    }
+
+    private static int lastIndexOf(@Nonnull byte[] data, int length, byte value) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void appendColumn(@Nonnull ByteArrayOutputStream output, @Nullable String value) {
+        output.write(delimiter);
+        if (StringUtils.isEmpty(value)) {
+            return;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char ch = value.charAt(i);
+            quoted = ch == delimiter || ch == QUOTE || ch == LINE_FEED || ch == CARRIAGE_RETURN;
+        }
+        String text = quoted ? '"' + StringUtils.replace(value, "\"", "\"\"") + '"' : value;
+        output.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * A chunk of whole lines
+     */
+    private class Chunk {
+        private final byte[] data;
+        private final int lineCount;
+        private final int[] lineStarts;
+        private final int[] lineEnds;
+        private final int[] lineKeys;
+        private final boolean header;
+        private final String[] addresses;
+        private final byte[][] suffixes;
+        private final boolean[] founds;
+        private CompletableFuture<Void> future;
+
+        private Chunk(@Nonnull byte[] data, int end, boolean header) {
+            this.data = data;
+            this.header = header;
+            int count = 0;
+            for (int i = 0; i < end; i++) {
+                if (data[i] == LINE_FEED) {
+                    count++;
+                }
+            }
+            if (end > 0 && data[end - 1] != LINE_FEED) {
+                count++;
+            }
+            lineCount = count;
+            lineStarts = new int[count];
+            lineEnds = new int[count];
+            lineKeys = new int[count];
+            Map<String, Integer> distincts = new HashMap<>();
+            int start = 0;
+            for (int line = 0; line < count; line++) {
+                int stop = start;
+                while (stop < end && data[stop] != LINE_FEED) {
+                    stop++;
+                }
+                lineStarts[line] = start;
+                lineEnds[line] = (stop > start && data[stop - 1] == CARRIAGE_RETURN) ? stop - 1 : stop;
+                String address = (header && line == 0) ? null : extractAddress(lineStarts[line], lineEnds[line]);
+                lineKeys[line] = (address == null) ? -1 : distincts.computeIfAbsent(address, key -> distincts.size());
+                start = stop + 1;
+            }
+            addresses = new String[distincts.size()];
+            distincts.forEach((key, value) -> addresses[value] = key);
+            suffixes = new byte[addresses.length][];
+            founds = new boolean[addresses.length];
+        }
+
+        @Nullable
+        private String extractAddress(int start, int end) {
+            int column = 0, fieldStart = start;
+            boolean quoted = false;
+            for (int i = start; i <= end; i++) {
+                if (i < end && data[i] == QUOTE) {
+                    // An escaped quote toggles twice
+                    quoted = !quoted;
+                }
+                if (i < end && (quoted || data[i] != delimiter)) {
+                    continue;
+                }
+                if (column++ == ipColumn) {
+                    int from = fieldStart, to = i;
+                    while (from < to && (data[from] == ' ' || data[from] == QUOTE)) {
+                        from++;
+                    }
+                    while (to > from && (data[to - 1] == ' ' || data[to - 1] == QUOTE)) {
+                        to--;
+                    }
+                    return (from < to) ? new String(data, from, to - from, StandardCharsets.ISO_8859_1) : null;
+                }
+                fieldStart = i + 1;
+            }
+            return null;
+        }
+
+        private void resolve(@Nonnull ExecutorService executor) {
+            int batches = (addresses.length + batchSize - 1) / batchSize;
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[batches];
+            for (int batch = 0; batch < batches; batch++) {
+                int from = batch * batchSize, to = Math.min(from + batchSize, addresses.length);
+                futures[batch] = CompletableFuture.runAsync(() -> {
+                    for (int i = from; i < to; i++) {
+                        GeoLookupResult result = resolver.lookupLocation(addresses[i], locale);
+                        ByteArrayOutputStream suffix = new ByteArrayOutputStream(32);
+                        appendColumn(suffix, result.getCountryName());
+                        appendColumn(suffix, result.getCityName());
+                        suffixes[i] = suffix.toByteArray();
+                        founds[i] = result.isFound();
+                    }
+                }, executor);
+            }
+            future = CompletableFuture.allOf(futures);
+        }
+
+        private void write(@Nonnull WritableByteChannel output, @Nonnull long[] counters) throws IOException {
+            future.join();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + lineCount * 32);
+            byte[] missing = new byte[] {delimiter, delimiter};
+            for (int line = 0; line < lineCount; line++) {
+                bytes.write(data, lineStarts[line], lineEnds[line] - lineStarts[line]);
+                if (header && line == 0) {
+                    appendColumn(bytes, "country");    // $NON-NLS-1$
+                    appendColumn(bytes, "city");    // $NON-NLS-1$
+                } else if (lineEnds[line] > lineStarts[line]) {
+                    int key = lineKeys[line];
+                    bytes.writeBytes(key < 0 ? missing : suffixes[key]);
+                    counters[0]++;
+                    if (key >= 0 && founds[key]) {
+                        counters[1]++;
+                    }
+                }
+                bytes.write(LINE_FEED);
+            }
+            counters[2] += addresses.length;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+        }
+    }
+
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, "geo-enricher-" + counter.incrementAndGet());    // $NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
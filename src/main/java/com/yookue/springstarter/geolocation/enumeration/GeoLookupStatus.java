@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.enumeration;
+
+
+import com.yookue.commonplexus.javaseutil.support.ValueEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+/**
+ * Enumerations of GEO lookup statuses
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.model.GeoLookupResult
+ */
+@AllArgsConstructor
+@Getter
+@SuppressWarnings("unused")
+public enum GeoLookupStatus implements ValueEnum<String> {
+    FOUND("found"),    // $NON-NLS-1$
+    NOT_FOUND("not-found"),    // $NON-NLS-1$
+    LAN_DISCARDED("lan-discarded"),    // $NON-NLS-1$
+    INVALID_INPUT("invalid-input"),    // $NON-NLS-1$
+    LOCAL_ERROR("local-error"),    // $NON-NLS-1$
+    REMOTE_ERROR("remote-error"),    // $NON-NLS-1$
+    REMOTE_UNAVAILABLE("remote-unavailable");    // $NON-NLS-1$
+
+    private final String value;
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.exception;
+
+
+import java.io.Serial;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+
+
+/**
+ * Exception thrown when the remote site is not available for a lookup, without calling it
+ * <p>
+ * Stack trace is not filled in, since this exception is expected to be thrown frequently under heavy load
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.support.GeoRemoteLimiter
+ */
+@SuppressWarnings("unused")
+public class GeoRemoteUnavailableException extends GeoIp2Exception {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public GeoRemoteUnavailableException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
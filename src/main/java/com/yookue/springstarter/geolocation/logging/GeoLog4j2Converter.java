@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.logging;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+
+
+/**
+ * Log4j2 pattern converter of GEO locations, which resolves the ip address in the context map
+ * <p>
+ * The plugin is discovered automatically, use it as {@code %geo{mdcKey}} or {@code %geo{mdcKey}{delimiter}} in the patterns.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.logging.GeoLogLocator
+ */
+@Plugin(name = "GeoLog4j2Converter", category = PatternConverter.CATEGORY)
+@ConverterKeys(value = {"geo"})
+@SuppressWarnings("unused")
+public class GeoLog4j2Converter extends LogEventPatternConverter {
+    private final String mdcKey;
+    private final GeoLogLocationCache cache;
+
+    private GeoLog4j2Converter(@Nonnull String mdcKey, @Nullable String delimiter) {
+        super("Geo", "geo");    // $NON-NLS-1$ // $NON-NLS-2$
+        this.mdcKey = mdcKey;
+        this.cache = new GeoLogLocationCache(delimiter);
+    }
+
+    @Nonnull
+    public static GeoLog4j2Converter newInstance(@Nullable String[] options) {
+        String mdcKey = ArrayUtils.get(options, 0);
+        if (StringUtils.isBlank(mdcKey)) {
+            throw new IllegalArgumentException("Missing MDC key of the ip address, use it as %geo{mdcKey}");
+        }
+        return new GeoLog4j2Converter(mdcKey, ArrayUtils.get(options, 1));
+    }
+
+    @Override
+    public void format(@Nonnull LogEvent event, @Nonnull StringBuilder toAppendTo) {
+        String value = cache.get(event.getContextData().getValue(mdcKey));
+        if (value != null) {
+            toAppendTo.append(value);
+        }
+    }
+}
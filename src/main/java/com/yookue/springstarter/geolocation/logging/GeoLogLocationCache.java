@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.logging;
+
+
+import java.util.Objects;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.CharUtils;
+import org.apache.commons.lang3.StringUtils;
+import com.yookue.commonplexus.javaseutil.constant.CharVariantConst;
+import com.yookue.springstarter.geolocation.enumeration.GeoLookupStatus;
+
+
+/**
+ * Per-thread cache of composite addresses for a pattern converter
+ * <p>
+ * Each thread holds a small direct-mapped table, so hits take neither locks nor allocations.
+ * Misses are resolved through the current {@link com.yookue.springstarter.geolocation.logging.GeoLogLocator},
+ * and the table is dropped once the locator changes or closes.
+ *
+ * @author David Hsing
+ */
+final class GeoLogLocationCache {
+    private final String delimiter;
+    private final ThreadLocal<Slots> slots = new ThreadLocal<>();
+
+    GeoLogLocationCache(@Nullable String delimiter) {
+        this.delimiter = Objects.toString(delimiter, CharUtils.toString(CharVariantConst.SLASH));
+    }
+
+    /**
+     * Returns the composite address of the ip address, or {@code null} if not found
+     */
+    @Nullable
+    String get(@Nullable String ipAddress) {
+        GeoLogLocator locator = GeoLogLocator.getCurrent();
+        Slots table = slots.get();
+        if (locator == null) {
+            if (table != null) {
+                // Releases the closed locator from pooled threads
+                slots.remove();
+            }
+            return null;
+        }
+        if (StringUtils.isBlank(ipAddress)) {
+            return null;
+        }
+        if (table == null || table.locator != locator) {
+            table = new Slots(locator);
+            slots.set(table);
+        }
+        int index = ipAddress.hashCode() & (table.keys.length - 1);
+        if (ipAddress.equals(table.keys[index])) {
+            return table.values[index];
+        }
+        table.builder.setLength(0);
+        GeoLookupStatus status = locator.getResolver().appendCompositeAddress(ipAddress, table.builder, delimiter, locator.getLocale());
+        if (status == GeoLookupStatus.LOCAL_ERROR) {
+            // Transient, try again next time
+            return null;
+        }
+        String value = (status == GeoLookupStatus.FOUND) ? table.builder.toString() : null;
+        table.keys[index] = ipAddress;
+        table.values[index] = value;
+        return value;
+    }
+
+
+    private static class Slots {
+        private final GeoLogLocator locator;
+        private final String[] keys;
+        private final String[] values;
+        private final StringBuilder builder = new StringBuilder(64);
+
+        private Slots(@Nonnull GeoLogLocator locator) {
+            this.locator = locator;
+            int capacity = Integer.highestOneBit(Math.min(Math.max(locator.getCacheSize() - 1, 1), 1 << 16)) << 1;
+            this.keys = new String[capacity];
+            this.values = new String[capacity];
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.logging;
+
+
+import java.io.Closeable;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import com.yookue.commonplexus.javaseutil.util.NumberUtilsWraps;
+import com.yookue.springstarter.geolocation.composer.GeoLocationResolver;
+import com.yookue.springstarter.geolocation.composer.impl.DefaultGeoLocationResolver;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+import com.yookue.springstarter.geolocation.support.GeoDatabaseRegistry;
+import lombok.Getter;
+
+
+/**
+ * Locator of GEO locations for the log pattern converters
+ * <p>
+ * Pattern converters are created by the logging systems rather than the application context, so the locator publishes itself to them.
+ * The locator resolves through the local databases only, and never touches the remote site, so the logging threads are never blocked on the network.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.logging.GeoLogbackConverter
+ * @see com.yookue.springstarter.geolocation.logging.GeoLog4j2Converter
+ */
+@Getter
+@SuppressWarnings("unused")
+public class GeoLogLocator implements Closeable {
+    private static final AtomicReference<GeoLogLocator> current = new AtomicReference<>();
+
+    private final GeoLocationResolver resolver;
+    private final int cacheSize;
+    private final Locale locale;
+
+    public GeoLogLocator(@Nullable GeoDatabaseRegistry databaseRegistry, boolean discardLan, @Nonnull GeoLocationProperties.LogConverter properties) {
+        this.resolver = new DefaultGeoLocationResolver(databaseRegistry, null, discardLan);
+        this.cacheSize = NumberUtilsWraps.isPositive(properties.getCacheSize()) ? properties.getCacheSize() : 256;
+        this.locale = properties.getLocale();
+        current.set(this);
+    }
+
+    /**
+     * Returns the locator of the latest application context, or {@code null} if none
+     */
+    @Nullable
+    public static GeoLogLocator getCurrent() {
+        return current.get();
+    }
+
+    @Override
+    public void close() {
+        current.compareAndSet(this, null);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.logging;
+
+
+import java.util.List;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.StringUtils;
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+
+/**
+ * Logback pattern converter of GEO locations, which resolves the ip address in the MDC
+ * <p>
+ * Register it with {@code <conversionRule conversionWord="geo" converterClass="com.yookue.springstarter.geolocation.logging.GeoLogbackConverter"/>},
+ * then use it as {@code %geo{mdcKey}} or {@code %geo{mdcKey,delimiter}} in the patterns.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.logging.GeoLogLocator
+ */
+@SuppressWarnings("unused")
+public class GeoLogbackConverter extends ClassicConverter {
+    private String mdcKey;
+    private GeoLogLocationCache cache;
+
+    @Override
+    public void start() {
+        mdcKey = getFirstOption();
+        if (StringUtils.isBlank(mdcKey)) {
+            addError("Missing MDC key of the ip address, use it as %geo{mdcKey}");
+            return;
+        }
+        List<String> options = getOptionList();
+        cache = new GeoLogLocationCache((options != null && options.size() > 1) ? options.get(1) : null);
+        super.start();
+    }
+
+    @Override
+    public String convert(@Nonnull ILoggingEvent event) {
+        Map<String, String> properties = event.getMDCPropertyMap();
+        String value = (cache == null || properties == null) ? null : cache.get(properties.get(mdcKey));
+        return StringUtils.defaultString(value);
+    }
+}
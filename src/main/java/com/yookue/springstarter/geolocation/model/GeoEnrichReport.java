@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.model;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Report of a GEO enrichment run
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.enricher.GeoLogEnricher
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+@SuppressWarnings("unused")
+public class GeoEnrichReport {
+    /**
+     * Rows written, excluding the header
+     */
+    private final long rows;
+
+    /**
+     * Rows that have been enriched with a location
+     */
+    private final long foundRows;
+
+    /**
+     * Lookups issued, after the deduplication of each chunk
+     */
+    private final long lookups;
+
+    /**
+     * Elapsed nanoseconds of the run
+     */
+    private final long elapsedNanos;
+
+    @ToString.Include
+    public double getRowsPerSecond() {
+        return (elapsedNanos <= 0L) ? 0D : rows * 1_000_000_000D / elapsedNanos;
+    }
+}
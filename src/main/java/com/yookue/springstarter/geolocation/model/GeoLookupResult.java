@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.model;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import com.yookue.springstarter.geolocation.enumeration.GeoLookupStatus;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Result of a GEO lookup, with a status instead of an exception
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.composer.GeoLocationResolver#lookupLocation(String, java.util.Locale)
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+@SuppressWarnings("unused")
+public final class GeoLookupResult {
+    public static final GeoLookupResult NOT_FOUND = new GeoLookupResult(GeoLookupStatus.NOT_FOUND, null, null);
+    public static final GeoLookupResult LAN_DISCARDED = new GeoLookupResult(GeoLookupStatus.LAN_DISCARDED, null, null);
+    public static final GeoLookupResult INVALID_INPUT = new GeoLookupResult(GeoLookupStatus.INVALID_INPUT, null, null);
+    public static final GeoLookupResult LOCAL_ERROR = new GeoLookupResult(GeoLookupStatus.LOCAL_ERROR, null, null);
+    public static final GeoLookupResult REMOTE_ERROR = new GeoLookupResult(GeoLookupStatus.REMOTE_ERROR, null, null);
+    public static final GeoLookupResult REMOTE_UNAVAILABLE = new GeoLookupResult(GeoLookupStatus.REMOTE_UNAVAILABLE, null, null);
+
+    private final GeoLookupStatus status;
+    private final String countryName;
+    private final String cityName;
+
+    /**
+     * Returns a found result, or {@link #NOT_FOUND} if both names are blank
+     *
+     * @param countryName the country name
+     * @param cityName the city name
+     *
+     * @return a found result, or {@link #NOT_FOUND} if both names are blank
+     */
+    @Nonnull
+    public static GeoLookupResult found(@Nullable String countryName, @Nullable String cityName) {
+        return StringUtils.isAllBlank(countryName, cityName) ? NOT_FOUND : new GeoLookupResult(GeoLookupStatus.FOUND, countryName, cityName);
+    }
+
+    public boolean isFound() {
+        return status == GeoLookupStatus.FOUND;
+    }
+
+    /**
+     * Returns the country name and the city name joined with the delimiter, or {@code null} if not found
+     *
+     * @param delimiter the delimiter between the country name and the city name
+     *
+     * @return the country name and the city name joined with the delimiter, or {@code null} if not found
+     */
+    @Nullable
+    public String getCompositeAddress(@Nullable String delimiter) {
+        return isFound() ? StringUtils.joinWith(StringUtils.defaultString(delimiter), countryName, cityName) : null;
+    }
+}
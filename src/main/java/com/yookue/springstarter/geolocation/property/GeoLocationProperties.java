@@ -21,10 +21,16 @@ import java.io.Serializable;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DataSizeUnit;
 import org.springframework.boot.convert.DurationUnit;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
 import com.yookue.springstarter.geolocation.config.GeoLocationAutoConfiguration;
 import com.yookue.springstarter.geolocation.enumeration.GeoCacheType;
+import com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -62,6 +68,16 @@ public class GeoLocationProperties implements Serializable {
      */
     private final RemoteSite remoteSite = new RemoteSite();
 
+    /**
+     * Log enricher attributes
+     */
+    private final LogEnricher logEnricher = new LogEnricher();
+
+    /**
+     * Log converter attributes
+     */
+    private final LogConverter logConverter = new LogConverter();
+
 
     /**
      * Properties for local file
@@ -83,6 +99,8 @@ public class GeoLocationProperties implements Serializable {
          * Country database resource path
          * <p>
          * If under the classpath, should specify with prefix "classpath:"
+         * <p>
+         * May be a compressed archive ({@code .mmdb.gz}, {@code .tar.gz} or {@code .tgz}), which is extracted into {@code extract-dir}
          */
         private String countryDb;
 
@@ -90,6 +108,8 @@ public class GeoLocationProperties implements Serializable {
          * City database resource path
          * <p>
          * If under the classpath, should specify with prefix "classpath:"
+         * <p>
+         * May be a compressed archive ({@code .mmdb.gz}, {@code .tar.gz} or {@code .tgz}), which is extracted into {@code extract-dir}
          */
         private String cityDb;
 
@@ -97,9 +117,30 @@ public class GeoLocationProperties implements Serializable {
          * ASN database resource path
          * <p>
          * If under the classpath, should specify with prefix "classpath:"
+         * <p>
+         * May be a compressed archive ({@code .mmdb.gz}, {@code .tar.gz} or {@code .tgz}), which is extracted into {@code extract-dir}
          */
         private String asnDb;
 
+        /**
+         * Database resource paths of any types, keyed by database types
+         * <p>
+         * Each database is loaded on its first use, databases of the same resource path share one reader
+         * <p>
+         * The resource paths of {@code country-db}, {@code city-db} and {@code asn-db} take precedence over the ones here
+         */
+        private Map<GeoDatabaseType, String> databases;
+
+        /**
+         * Directory of the databases extracted from compressed archives
+         * <p>
+         * Extracted databases are named after the checksums of their archives, and reused by later starts if the archives are unchanged.
+         * The directory must be owned by the current user and not writable by others
+         * <p>
+         * Default is "geo-location-${user.name}" under the {@code java.io.tmpdir} directory
+         */
+        private String extractDir;
+
         /**
          * Preferred locales for results
          */
@@ -116,6 +157,16 @@ public class GeoLocationProperties implements Serializable {
          * Database cache capacity
          */
         private Integer cacheCapacity;
+
+        /**
+         * Indicates whether to share database readers across application contexts of the JVM or not
+         * <p>
+         * Readers are shared when their resources are the same file (or URL) with the same checksum, and their locales and caches are the same.
+         * A shared reader is closed when the last application context releases it
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean processShared = false;
     }
 
 
@@ -195,5 +246,188 @@ public class GeoLocationProperties implements Serializable {
          * Proxy port for the remote site
          */
         private Integer proxyPort;
+
+        /**
+         * Maximum concurrent requests to the remote site
+         * <p>
+         * Requests beyond this limit fail fast instead of waiting, zero or negative means unlimited
+         */
+        private Integer maxConcurrentRequests;
+
+        /**
+         * Maximum requests per second to the remote site
+         * <p>
+         * Requests beyond this limit fail fast instead of waiting, zero or negative means unlimited
+         */
+        private Integer maxRequestsPerSecond;
+
+        /**
+         * In-process cache capacity for the results of the remote site
+         * <p>
+         * The least recently used results are evicted beyond this capacity, zero or negative means no in-process cache
+         */
+        private Integer cacheCapacity;
+
+        /**
+         * Time-to-live of the cached results of the remote site
+         * <p>
+         * Default is {@code 1h}, zero means never expire
+         */
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration cacheTtl = Duration.ofHours(1L);
+
+        /**
+         * Time-to-live of the cached not-found results of the remote site
+         * <p>
+         * Default is {@code 5m}, zero means never expire
+         */
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration cacheNotFoundTtl = Duration.ofMinutes(5L);
+
+        /**
+         * Cache name of the shared cache for the results of the remote site
+         * <p>
+         * If specified, the results will be shared across nodes, through the cache with this name of the {@link org.springframework.cache.CacheManager} bean
+         */
+        private String sharedCacheName;
+
+        /**
+         * Indicates whether to hedge slow requests to the remote site or not
+         * <p>
+         * If a request has not returned within the hedge percentile of the recent latencies, a second request will be fired,
+         * and whichever returns first wins
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean hedgeEnabled = false;
+
+        /**
+         * Percentile of the recent latencies to wait before hedging a request
+         * <p>
+         * Default is 95
+         */
+        private Double hedgePercentile = 95D;
+
+        /**
+         * Minimum duration to wait before hedging a request
+         * <p>
+         * Default is 20 milliseconds
+         */
+        @DurationUnit(value = ChronoUnit.MILLIS)
+        private Duration hedgeMinDelay = Duration.ofMillis(20L);
+
+        /**
+         * Maximum ratio of the hedged requests to all the requests
+         * <p>
+         * Default is 0.05
+         */
+        private Double hedgeMaxRatio = 0.05D;
+
+        /**
+         * Maximum threads to run the requests of hedging
+         * <p>
+         * When all the threads are busy, requests will be run on the caller threads without hedging
+         * <p>
+         * Default is 64
+         */
+        private Integer hedgeMaxThreads = 64;
+    }
+
+
+    /**
+     * Properties for log enricher
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.geolocation.enricher.GeoLogEnricher
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class LogEnricher implements Serializable {
+        /**
+         * Indicates whether to enable log enricher or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * Column delimiter of the rows, must be an ASCII character
+         * <p>
+         * Default is ","
+         */
+        private Character delimiter = ',';
+
+        /**
+         * Zero based column index of the ip address
+         * <p>
+         * Default is 0
+         */
+        private Integer ipColumn = 0;
+
+        /**
+         * Indicates whether the first row is a header or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean header = false;
+
+        /**
+         * Chunk size for reading the rows
+         * <p>
+         * Default is 4 megabytes
+         */
+        @DataSizeUnit(value = DataUnit.MEGABYTES)
+        private DataSize chunkSize = DataSize.ofMegabytes(4L);
+
+        /**
+         * Maximum distinct addresses of a batch for each worker
+         * <p>
+         * Default is 256
+         */
+        private Integer batchSize = 256;
+
+        /**
+         * Number of the worker threads
+         * <p>
+         * Default is the number of the available processors
+         */
+        private Integer parallelism;
+
+        /**
+         * Preferred locale for the names
+         */
+        private Locale locale;
+    }
+
+
+    /**
+     * Properties for log pattern converters
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.geolocation.logging.GeoLogLocator
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class LogConverter implements Serializable {
+        /**
+         * Indicates whether to enable log converters or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean enabled = true;
+
+        /**
+         * Maximum cached addresses of each thread for each converter, rounded up to a power of two
+         * <p>
+         * Default is 256
+         */
+        private Integer cacheSize = 256;
+
+        /**
+         * Preferred locale for the names
+         */
+        private Locale locale;
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.provider;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+
+
+/**
+ * Provider interface for remote GEO lookups
+ * <p>
+ * Like {@link com.maxmind.geoip2.DatabaseReader#tryCountry(InetAddress)}, an address that is not found yields an empty {@link java.util.Optional}
+ * <p>
+ * Decorating providers should close their delegates on {@link #close()}
+ * <p>
+ * The responses may be partial, callers should rely on the country and city records only,
+ * since a caching provider serves the responses in the compact format of {@link com.yookue.springstarter.geolocation.util.GeoResponseCodecUtils}
+ *
+ * @author David Hsing
+ * @see com.maxmind.geoip2.WebServiceClient
+ */
+@SuppressWarnings("unused")
+public interface GeoRemoteProvider extends Closeable {
+    Optional<CountryResponse> tryCountry(@Nonnull InetAddress address) throws IOException, GeoIp2Exception;
+
+    Optional<CityResponse> tryCity(@Nonnull InetAddress address) throws IOException, GeoIp2Exception;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
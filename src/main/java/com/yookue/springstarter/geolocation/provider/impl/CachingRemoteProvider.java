@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.provider.impl;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import org.springframework.util.CollectionUtils;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType;
+import com.yookue.springstarter.geolocation.provider.GeoRemoteProvider;
+import com.yookue.springstarter.geolocation.util.GeoResponseCodecUtils;
+import lombok.extern.apachecommons.CommonsLog;
+
+
+/**
+ * Provider implementation that caches the results of another {@link com.yookue.springstarter.geolocation.provider.GeoRemoteProvider}
+ * <p>
+ * Results are looked up from an in-process LRU cache first, then from a shared {@link org.springframework.cache.Cache}, and finally from the delegate.
+ * The shared cache holds the results in the compact format of {@link com.yookue.springstarter.geolocation.util.GeoResponseCodecUtils},
+ * so any cache provider that stores byte arrays can share them across nodes. Not-found results are cached too, with a shorter time-to-live.
+ * <p>
+ * Whichever tier answers, the responses carry the country and city records only, see {@link com.yookue.springstarter.geolocation.util.GeoResponseCodecUtils}
+ *
+ * @author David Hsing
+ * @see org.springframework.cache.CacheManager
+ */
+@CommonsLog
+@SuppressWarnings("unused")
+public class CachingRemoteProvider implements GeoRemoteProvider {
+    private static final List<String> DEFAULT_LOCALES = Collections.singletonList("en");    // $NON-NLS-1$
+
+    private final GeoRemoteProvider delegate;
+    private final Map<String, LocalEntry> localCache;
+    private final long foundTtlMillis;
+    private final long notFoundTtlMillis;
+    private final Cache sharedCache;
+    private final List<String> locales;
+
+    public CachingRemoteProvider(@Nonnull GeoRemoteProvider delegate, int localCapacity, @Nullable Cache sharedCache, @Nullable List<String> locales) {
+        this(delegate, localCapacity, null, null, sharedCache, locales);
+    }
+
+    /**
+     * Constructs a new caching provider
+     *
+     * @param delegate the provider to look up on cache misses
+     * @param localCapacity the capacity of the in-process cache, zero or negative means no in-process cache
+     * @param foundTtl the time-to-live of the found results, {@code null}, zero or negative means never expire
+     * @param notFoundTtl the time-to-live of the not-found results, {@code null}, zero or negative means never expire
+     * @param sharedCache the shared cache, or {@code null} if no shared cache
+     * @param locales the locales of the delegate, used to resolve names of the cached results
+     */
+    public CachingRemoteProvider(@Nonnull GeoRemoteProvider delegate, int localCapacity, @Nullable Duration foundTtl, @Nullable Duration notFoundTtl, @Nullable Cache sharedCache, @Nullable List<String> locales) {
+        this.delegate = delegate;
+        this.localCache = (localCapacity > 0) ? Collections.synchronizedMap(new LocalCache(localCapacity)) : null;
+        this.foundTtlMillis = toTtlMillis(foundTtl);
+        this.notFoundTtlMillis = toTtlMillis(notFoundTtl);
+        this.sharedCache = sharedCache;
+        this.locales = CollectionUtils.isEmpty(locales) ? DEFAULT_LOCALES : List.copyOf(locales);
+    }
+
+    @Override
+    public Optional<CountryResponse> tryCountry(@Nonnull InetAddress address) throws IOException, GeoIp2Exception {
+        String key = GeoDatabaseType.COUNTRY.getValue() + ':' + address.getHostAddress();
+        Optional<CountryResponse> cached = getCached(key, bytes -> GeoResponseCodecUtils.decodeCountry(bytes, locales));
+        if (cached != null) {
+            return cached;
+        }
+        Optional<CountryResponse> response = delegate.tryCountry(address);
+        byte[] bytes = GeoResponseCodecUtils.encodeCountry(response.orElse(null), getExpiresAt(response));
+        // Served in the same shape as the cached ones
+        Optional<CountryResponse> result = GeoResponseCodecUtils.decodeCountry(bytes, locales);
+        putCached(key, result, bytes);
+        return result;
+    }
+
+    @Override
+    public Optional<CityResponse> tryCity(@Nonnull InetAddress address) throws IOException, GeoIp2Exception {
+        String key = GeoDatabaseType.CITY.getValue() + ':' + address.getHostAddress();
+        Optional<CityResponse> cached = getCached(key, bytes -> GeoResponseCodecUtils.decodeCity(bytes, locales));
+        if (cached != null) {
+            return cached;
+        }
+        Optional<CityResponse> response = delegate.tryCity(address);
+        byte[] bytes = GeoResponseCodecUtils.encodeCity(response.orElse(null), getExpiresAt(response));
+        // Served in the same shape as the cached ones
+        Optional<CityResponse> result = GeoResponseCodecUtils.decodeCity(bytes, locales);
+        putCached(key, result, bytes);
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Nullable
+    @SuppressWarnings({"unchecked", "OptionalAssignedToNull"})
+    private <T> Optional<T> getCached(@Nonnull String key, @Nonnull Function<byte[], Optional<T>> decoder) {
+        if (localCache != null) {
+            LocalEntry local = localCache.get(key);
+            if (local != null) {
+                if (local.expiresAt <= 0L || local.expiresAt > System.currentTimeMillis()) {
+                    return (Optional<T>) local.result;
+                }
+                localCache.remove(key);
+            }
+        }
+        if (sharedCache == null) {
+            return null;
+        }
+        byte[] bytes = null;
+        try {
+            bytes = sharedCache.get(key, byte[].class);
+        } catch (RuntimeException ex) {
+            if (log.isDebugEnabled()) {
+                log.debug("Read shared cache '" + sharedCache.getName() + "' failed", ex);
+            }
+        }
+        // Expired or undecodable results are misses
+        Optional<T> shared = decoder.apply(bytes);
+        if (shared != null) {
+            putLocal(key, shared, GeoResponseCodecUtils.getExpiresAt(bytes));
+        }
+        return shared;
+    }
+
+    private void putCached(@Nonnull String key, @Nullable Optional<?> result, @Nonnull byte[] bytes) {
+        if (result == null) {
+            return;
+        }
+        putLocal(key, result, GeoResponseCodecUtils.getExpiresAt(bytes));
+        if (sharedCache == null) {
+            return;
+        }
+        try {
+            sharedCache.put(key, bytes);
+        } catch (RuntimeException ex) {
+            if (log.isDebugEnabled()) {
+                log.debug("Write shared cache '" + sharedCache.getName() + "' failed", ex);
+            }
+        }
+    }
+
+    private void putLocal(@Nonnull String key, @Nonnull Optional<?> result, long expiresAt) {
+        if (localCache != null) {
+            localCache.put(key, new LocalEntry(result, expiresAt));
+        }
+    }
+
+    private long getExpiresAt(@Nonnull Optional<?> response) {
+        long ttlMillis = response.isPresent() ? foundTtlMillis : notFoundTtlMillis;
+        return (ttlMillis > 0L) ? System.currentTimeMillis() + ttlMillis : 0L;
+    }
+
+    private static long toTtlMillis(@Nullable Duration ttl) {
+        return (ttl == null || ttl.isNegative()) ? 0L : ttl.toMillis();
+    }
+
+
+    private record LocalEntry(Optional<?> result, long expiresAt) {
+    }
+
+
+    /**
+     * LRU map of the in-process cache, not thread-safe by itself
+     */
+    private static class LocalCache extends LinkedHashMap<String, LocalEntry> {
+        private final int capacity;
+
+        private LocalCache(int capacity) {
+            super(Math.min(capacity, 1024), 0.75F, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(@Nonnull Map.Entry<String, LocalEntry> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.provider.impl;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.yookue.springstarter.geolocation.provider.GeoRemoteProvider;
+
+
+/**
+ * Provider implementation that hedges the calls of another {@link com.yookue.springstarter.geolocation.provider.GeoRemoteProvider}
+ * <p>
+ * If a call has not returned within the given percentile of the recent latencies, a second call is fired,
+ * and whichever succeeds first wins. The hedged calls are capped to a ratio of all the calls.
+ * Hedging starts after enough latencies have been sampled, before that, calls go to the delegate directly.
+ * The losing attempts are cancelled, and their latencies are not sampled.
+ *
+ * @author David Hsing
+ * @reference "https://research.google/pubs/the-tail-at-scale/"
+ */
+@SuppressWarnings({"unused", "JavadocDeclaration", "JavadocLinkAsPlainText"})
+public class HedgingRemoteProvider implements GeoRemoteProvider {
+    private static final int SAMPLE_CAPACITY = 1024;
+    private static final int SAMPLE_MINIMUM = 32;
+    private static final int RECOMPUTE_INTERVAL = 64;
+    private static final int DEFAULT_MAX_THREADS = 64;
+
+    private final GeoRemoteProvider delegate;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double maxHedgeRatio;
+    private final ExecutorService executor;
+    private final long[] samples = new long[SAMPLE_CAPACITY];
+    private long sampleCount;
+    private volatile long hedgeDelayNanos = -1L;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+    /**
+     * Constructs a new hedging provider
+     *
+     * @param delegate the provider to hedge
+     * @param percentile the percentile (between 0 and 100, exclusive) of the recent latencies to wait before hedging
+     * @param minDelay the minimum duration to wait before hedging
+     * @param maxHedgeRatio the maximum ratio (between 0 and 1) of the hedged calls to all the calls
+     */
+    public HedgingRemoteProvider(@Nonnull GeoRemoteProvider delegate, double percentile, @Nullable Duration minDelay, double maxHedgeRatio) {
+        this(delegate, percentile, minDelay, maxHedgeRatio, DEFAULT_MAX_THREADS);
+    }
+
+    /**
+     * Constructs a new hedging provider
+     * <p>
+     * The attempts run on a pool of at most {@code maxThreads} threads. When the pool is exhausted, calls run on the caller threads without hedging,
+     * so the threads are bounded however slow the remote site is
+     *
+     * @param delegate the provider to hedge
+     * @param percentile the percentile (between 0 and 100, exclusive) of the recent latencies to wait before hedging
+     * @param minDelay the minimum duration to wait before hedging
+     * @param maxHedgeRatio the maximum ratio (between 0 and 1) of the hedged calls to all the calls
+     * @param maxThreads the maximum threads of the attempts
+     */
+    public HedgingRemoteProvider(@Nonnull GeoRemoteProvider delegate, double percentile, @Nullable Duration minDelay, double maxHedgeRatio, int maxThreads) {
+        if (percentile <= 0D || percentile >= 100D) {
+            throw new IllegalArgumentException("Hedge percentile must be between 0 and 100");
+        }
+        this.delegate = delegate;
+        this.percentile = percentile;
+        this.minDelayNanos = (minDelay == null || minDelay.isNegative()) ? 0L : minDelay.toNanos();
+        this.maxHedgeRatio = Math.max(Math.min(maxHedgeRatio, 1D), 0D);
+        this.executor = new ThreadPoolExecutor(0, Math.max(maxThreads, 1), 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), new HedgeThreadFactory());
+    }
+
+    @Override
+    public Optional<CountryResponse> tryCountry(@Nonnull InetAddress address) throws IOException, GeoIp2Exception {
+        return hedge(() -> delegate.tryCountry(address));
+    }
+
+    @Override
+    public Optional<CityResponse> tryCity(@Nonnull InetAddress address) throws IOException, GeoIp2Exception {
+        return hedge(() -> delegate.tryCity(address));
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        delegate.close();
+    }
+
+    /**
+     * Returns the current delay before hedging, or {@code null} if not enough latencies have been sampled
+     */
+    @Nullable
+    public Duration getHedgeDelay() {
+        long delay = hedgeDelayNanos;
+        return (delay < 0L) ? null : Duration.ofNanos(delay);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * Returns the number of the hedged calls that returned before their primary calls
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    private <T> Optional<T> hedge(@Nonnull RemoteCall<T> call) throws IOException, GeoIp2Exception {
+        requestCount.incrementAndGet();
+        long delay = hedgeDelayNanos;
+        Attempts<T> attempts = new Attempts<>();
+        if (delay < 0L || !launch(call, attempts, false)) {
+            // Not calibrated yet, or no thread to spare, calls on the caller thread without hedging
+            long startTime = System.nanoTime();
+            Optional<T> result = call.call();
+            recordLatency(System.nanoTime() - startTime);
+            return result;
+        }
+        try {
+            try {
+                return attempts.winner.get(delay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ignored) {
+            }
+            // The budget is spent only on the hedges actually sent
+            if (!attempts.winner.isDone() && tryAcquireHedge() && !launch(call, attempts, true)) {
+                hedgeCount.decrementAndGet();
+            }
+            return attempts.winner.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for remote site");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException exception) {
+                throw exception;
+            } else if (cause instanceof GeoIp2Exception exception) {
+                throw exception;
+            } else if (cause instanceof RuntimeException exception) {
+                throw exception;
+            }
+            throw new GeoIp2Exception("Remote site call failed", cause);
+        } finally {
+            // Stops the losing attempt, rather than letting it hold a thread and a connection
+            attempts.cancel();
+        }
+    }
+
+    /**
+     * Launches an attempt on the executor
+     *
+     * @return whether the attempt has been launched or not, {@code false} if the executor has no thread to spare
+     */
+    private <T> boolean launch(@Nonnull RemoteCall<T> call, @Nonnull Attempts<T> attempts, boolean hedged) {
+        attempts.launched.incrementAndGet();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                long startTime = System.nanoTime();
+                try {
+                    Optional<T> result = call.call();
+                    // Only the winner is sampled, a stale loser would inflate the percentile
+                    if (attempts.winner.complete(result)) {
+                        recordLatency(System.nanoTime() - startTime);
+                        if (hedged) {
+                            hedgeWinCount.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable ex) {
+                    attempts.fail(ex);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            attempts.launched.decrementAndGet();
+            attempts.checkFailed();
+            return false;
+        }
+        attempts.futures.add(future);
+        if (attempts.winner.isDone()) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    private boolean tryAcquireHedge() {
+        long hedges = hedgeCount.get();
+        return hedges + 1L <= maxHedgeRatio * requestCount.get() && hedgeCount.compareAndSet(hedges, hedges + 1L);
+    }
+
+    private void recordLatency(long latencyNanos) {
+        long[] snapshot = null;
+        synchronized (samples) {
+            samples[(int) (sampleCount++ % SAMPLE_CAPACITY)] = latencyNanos;
+            if (sampleCount >= SAMPLE_MINIMUM && (sampleCount == SAMPLE_MINIMUM || sampleCount % RECOMPUTE_INTERVAL == 0L)) {
+                snapshot = Arrays.copyOf(samples, (int) Math.min(sampleCount, SAMPLE_CAPACITY));
+            }
+        }
+        if (snapshot != null) {
+            Arrays.sort(snapshot);
+            int index = Math.max((int) Math.ceil(percentile / 100D * snapshot.length) - 1, 0);
+            hedgeDelayNanos = Math.max(snapshot[index], minDelayNanos);
+        }
+    }
+
+
+    /**
+     * Attempts of a call, the first success wins, and the call fails only if all the launched attempts fail
+     */
+    private static class Attempts<T> {
+        private final CompletableFuture<Optional<T>> winner = new CompletableFuture<>();
+        private final AtomicInteger launched = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Queue<Future<?>> futures = new ConcurrentLinkedQueue<>();
+
+        private void fail(@Nonnull Throwable ex) {
+            failure.set(ex);
+            failures.incrementAndGet();
+            checkFailed();
+        }
+
+        private void checkFailed() {
+            Throwable ex = failure.get();
+            if (ex != null && failures.get() >= launched.get()) {
+                winner.completeExceptionally(ex);
+            }
+        }
+
+        private void cancel() {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+
+    @FunctionalInterface
+    private interface RemoteCall<T> {
+        Optional<T> call() throws IOException, GeoIp2Exception;
+    }
+
+
+    private static class HedgeThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, "geo-hedge-" + counter.incrementAndGet());    // $NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.provider.impl;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.yookue.springstarter.geolocation.exception.GeoRemoteUnavailableException;
+import com.yookue.springstarter.geolocation.provider.GeoRemoteProvider;
+import com.yookue.springstarter.geolocation.support.GeoRemoteLimiter;
+import lombok.AllArgsConstructor;
+
+
+/**
+ * Provider implementation that guards another {@link com.yookue.springstarter.geolocation.provider.GeoRemoteProvider} with a {@link com.yookue.springstarter.geolocation.support.GeoRemoteLimiter}
+ * <p>
+ * Calls that exceed the limits fail fast with {@link com.yookue.springstarter.geolocation.exception.GeoRemoteUnavailableException}, instead of queueing
+ *
+ * @author David Hsing
+ */
+@AllArgsConstructor
+@SuppressWarnings("unused")
+public class LimitingRemoteProvider implements GeoRemoteProvider {
+    private final GeoRemoteProvider delegate;
+    private final GeoRemoteLimiter limiter;
+
+    @Override
+    public Optional<CountryResponse> tryCountry(@Nonnull InetAddress address) throws IOException, GeoIp2Exception {
+        acquire();
+        try {
+            return delegate.tryCountry(address);
+        } finally {
+            limiter.releaseConcurrency();
+        }
+    }
+
+    @Override
+    public Optional<CityResponse> tryCity(@Nonnull InetAddress address) throws IOException, GeoIp2Exception {
+        acquire();
+        try {
+            return delegate.tryCity(address);
+        } finally {
+            limiter.releaseConcurrency();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private void acquire() throws GeoRemoteUnavailableException {
+        if (!limiter.tryAcquireConcurrency()) {
+            throw new GeoRemoteUnavailableException("Remote site concurrency limit exceeded");
+        }
+        if (!limiter.tryAcquireRate()) {
+            limiter.releaseConcurrency();
+            throw new GeoRemoteUnavailableException("Remote site rate limit exceeded");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.provider.impl;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import com.maxmind.geoip2.WebServiceClient;
+import com.maxmind.geoip2.exception.AddressNotFoundException;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.yookue.springstarter.geolocation.provider.GeoRemoteProvider;
+import lombok.AllArgsConstructor;
+
+
+/**
+ * Provider implementation for {@link com.maxmind.geoip2.WebServiceClient}
+ *
+ * @author David Hsing
+ * @see com.maxmind.geoip2.WebServiceClient
+ */
+@AllArgsConstructor
+@SuppressWarnings("unused")
+public class WebServiceRemoteProvider implements GeoRemoteProvider {
+    private final WebServiceClient webClient;
+
+    @Override
+    public Optional<CountryResponse> tryCountry(@Nonnull InetAddress address) throws IOException, GeoIp2Exception {
+        try {
+            return Optional.ofNullable(webClient.country(address));
+        } catch (AddressNotFoundException ignored) {
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<CityResponse> tryCity(@Nonnull InetAddress address) throws IOException, GeoIp2Exception {
+        try {
+            return Optional.ofNullable(webClient.city(address));
+        } catch (AddressNotFoundException ignored) {
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.support;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.core.io.Resource;
+import com.maxmind.geoip2.DatabaseReader;
+import com.yookue.springstarter.geolocation.enumeration.GeoCacheType;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+import com.yookue.springstarter.geolocation.util.GeoDatabaseUtils;
+import lombok.AllArgsConstructor;
+import lombok.extern.apachecommons.CommonsLog;
+
+
+/**
+ * JVM-wide pool of GEO {@link com.maxmind.geoip2.DatabaseReader}s, shared across application contexts
+ * <p>
+ * Readers are keyed by the identity and the checksum of their resources, plus their locales and caches,
+ * so application contexts of the same database share one reader and one node cache.
+ * The checksum is recomputed only when the size or the modification time of a resource changes.
+ * Readers are reference-counted, and closed when the last reference is released.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.geolocation.support.GeoDatabaseRegistry
+ */
+@CommonsLog
+@SuppressWarnings("unused")
+public abstract class GeoDatabaseReaderPool {
+    private static final Map<PoolKey, PoolEntry> entries = new HashMap<>();
+    private static final Map<DatabaseReader, PoolEntry> acquisitions = new IdentityHashMap<>();
+    private static final Map<String, ResourceStamp> stamps = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a shared reader of the database location, and increments its reference count
+     *
+     * @param localFile the local file properties
+     * @param location the database location
+     *
+     * @return a shared reader of the database location
+     */
+    @Nonnull
+    public static DatabaseReader acquire(@Nonnull GeoLocationProperties.LocalFile localFile, @Nullable String location) throws IOException {
+        Resource resource = GeoDatabaseUtils.getDatabaseResource(localFile, location);
+        String identity = GeoDatabaseUtils.getResourceIdentity(resource);
+        List<String> locales = (localFile.getLocales() == null) ? null : List.copyOf(localFile.getLocales());
+        PoolKey key = new PoolKey(identity, getResourceChecksum(identity, resource), locales, localFile.getCacheType(), localFile.getCacheCapacity());
+        PoolEntry entry;
+        boolean builder = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new PoolEntry(key, new CompletableFuture<>(), 0);
+                entries.put(key, entry);
+                builder = true;
+            }
+            entry.references++;
+        }
+        if (builder) {
+            // Builds the reader outside the lock, so acquisitions of other databases are not blocked
+            buildReader(localFile, resource, entry);
+        }
+        try {
+            return entry.reader.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            abandon(entry);
+            throw new InterruptedIOException("Interrupted while waiting for database reader");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException exception) {
+                throw exception;
+            } else if (ex.getCause() instanceof RuntimeException exception) {
+                throw exception;
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Decrements the reference count of the shared reader, and closes it if no references remain
+     *
+     * @param reader the shared reader
+     *
+     * @return whether the reader has been closed or not
+     */
+    public static boolean release(@Nullable DatabaseReader reader) throws IOException {
+        if (reader == null) {
+            return false;
+        }
+        synchronized (entries) {
+            PoolEntry entry = acquisitions.get(reader);
+            if (entry == null || --entry.references > 0) {
+                return false;
+            }
+            entries.remove(entry.key);
+            acquisitions.remove(reader);
+        }
+        reader.close();
+        return true;
+    }
+
+    /**
+     * Returns the reference count of the shared reader, or zero if not pooled
+     */
+    public static int getReferenceCount(@Nullable DatabaseReader reader) {
+        synchronized (entries) {
+            PoolEntry entry = (reader == null) ? null : acquisitions.get(reader);
+            return (entry == null) ? 0 : entry.references;
+        }
+    }
+
+    /**
+     * Returns the number of the shared readers
+     */
+    public static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+
+    private static void buildReader(@Nonnull GeoLocationProperties.LocalFile localFile, @Nonnull Resource resource, @Nonnull PoolEntry entry) {
+        DatabaseReader reader;
+        try {
+            reader = GeoDatabaseUtils.getDatabaseReader(localFile, resource);
+        } catch (IOException | RuntimeException ex) {
+            synchronized (entries) {
+                entries.remove(entry.key, entry);
+            }
+            entry.reader.completeExceptionally(ex);
+            return;
+        }
+        synchronized (entries) {
+            // Registers before completing, so the reader can be released as soon as it is returned
+            acquisitions.put(reader, entry);
+        }
+        entry.reader.complete(reader);
+        if (log.isDebugEnabled()) {
+            log.debug("Pooled database reader of '" + entry.key.identity + "'");
+        }
+    }
+
+    /**
+     * Gives up a reference of a waiter, the builder always holds another one until the reader is ready
+     */
+    private static void abandon(@Nonnull PoolEntry entry) throws IOException {
+        if (entry.reader.isDone() && !entry.reader.isCompletedExceptionally()) {
+            release(entry.reader.join());
+            return;
+        }
+        synchronized (entries) {
+            entry.references--;
+        }
+    }
+
+    /**
+     * Returns the checksum of the resource, computes it only if the size or the modification time of the resource has changed
+     */
+    private static long getResourceChecksum(@Nonnull String identity, @Nonnull Resource resource) throws IOException {
+        long length, lastModified;
+        try {
+            length = resource.contentLength();
+            lastModified = resource.lastModified();
+        } catch (IOException ignored) {
+            return GeoDatabaseUtils.getResourceChecksum(resource);
+        }
+        ResourceStamp stamp = stamps.get(identity);
+        if (stamp != null && stamp.length == length && stamp.lastModified == lastModified) {
+            return stamp.checksum;
+        }
+        long checksum = GeoDatabaseUtils.getResourceChecksum(resource);
+        stamps.put(identity, new ResourceStamp(length, lastModified, checksum));
+        return checksum;
+    }
+
+
+    private record ResourceStamp(long length, long lastModified, long checksum) {
+    }
+
+
+    private record PoolKey(String identity, long checksum, List<String> locales, GeoCacheType cacheType, Integer cacheCapacity) {
+    }
+
+
+    @AllArgsConstructor
+    private static class PoolEntry {
+        private final PoolKey key;
+        private final CompletableFuture<DatabaseReader> reader;
+        private int references;
+    }
+}
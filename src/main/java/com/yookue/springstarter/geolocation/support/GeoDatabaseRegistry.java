@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.support;
+
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
+import com.maxmind.geoip2.DatabaseReader;
+import com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+import com.yookue.springstarter.geolocation.util.GeoDatabaseUtils;
+import lombok.extern.apachecommons.CommonsLog;
+
+
+/**
+ * Registry of GEO {@link com.maxmind.geoip2.DatabaseReader}s, keyed by {@link com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType}
+ * <p>
+ * Each database is loaded on its first use, so configured but unused databases cost nothing.
+ * Types of the same location share one reader, and thus one memory-mapped buffer.
+ * Missing locations fail on construction, and locations that failed to load are not loaded again.
+ * If {@code process-shared} of the local file properties is {@code true}, readers are acquired from {@link com.yookue.springstarter.geolocation.support.GeoDatabaseReaderPool}.
+ *
+ * @author David Hsing
+ */
+@CommonsLog
+@SuppressWarnings("unused")
+public class GeoDatabaseRegistry implements Closeable {
+    private static final GeoDatabaseType[] TYPES = GeoDatabaseType.values();
+
+    private final Map<GeoDatabaseType, String> locations;
+    private final GeoLocationProperties.LocalFile localFile;
+    private final boolean pooled;
+    private final AtomicReferenceArray<DatabaseReader> readers = new AtomicReferenceArray<>(TYPES.length);
+    private final AtomicReferenceArray<Supplier<DatabaseReader>> suppliers = new AtomicReferenceArray<>(TYPES.length);
+    private final Map<String, DatabaseReader> loadedReaders = new HashMap<>();
+    private final Map<String, IOException> failedLocations = new HashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new registry without locations, for registered readers only
+     */
+    public GeoDatabaseRegistry() {
+        this.locations = Collections.emptyMap();
+        this.localFile = new GeoLocationProperties.LocalFile();
+        this.pooled = false;
+    }
+
+    /**
+     * Constructs a new registry with the locations of the local file properties
+     *
+     * @param localFile the local file properties
+     *
+     * @throws java.io.FileNotFoundException if any location is not exists or readable
+     * @see com.yookue.springstarter.geolocation.util.GeoDatabaseUtils#getDatabaseLocations(GeoLocationProperties.LocalFile)
+     */
+    public GeoDatabaseRegistry(@Nonnull GeoLocationProperties.LocalFile localFile) throws IOException {
+        this(GeoDatabaseUtils.getDatabaseLocations(localFile), localFile);
+    }
+
+    /**
+     * Constructs a new registry
+     * <p>
+     * The locations are checked for existence here, but not loaded
+     *
+     * @param locations the database locations, keyed by database types
+     * @param localFile the local file properties, for locales and caches of the readers
+     *
+     * @throws java.io.FileNotFoundException if any location is not exists or readable
+     */
+    public GeoDatabaseRegistry(@Nullable Map<GeoDatabaseType, String> locations, @Nonnull GeoLocationProperties.LocalFile localFile) throws IOException {
+        this.locations = (locations == null || locations.isEmpty()) ? Collections.emptyMap() : Collections.unmodifiableMap(new EnumMap<>(locations));
+        this.localFile = localFile;
+        this.pooled = BooleanUtils.isTrue(localFile.getProcessShared());
+        for (Map.Entry<GeoDatabaseType, String> entry : this.locations.entrySet()) {
+            try {
+                GeoDatabaseUtils.getDatabaseResource(entry.getValue());
+            } catch (FileNotFoundException ex) {
+                throw new FileNotFoundException("Location database of " + entry.getKey().getValue() + " is not exists or readable at '" + entry.getValue() + "'");
+            }
+        }
+    }
+
+    /**
+     * Registers a loaded reader for the type, which takes precedence over the location of the type
+     * <p>
+     * The registry does not close registered readers
+     *
+     * @param type the database type
+     * @param reader the reader to register, or {@code null} to do nothing
+     */
+    public void register(@Nonnull GeoDatabaseType type, @Nullable DatabaseReader reader) {
+        if (reader != null) {
+            readers.set(type.ordinal(), reader);
+        }
+    }
+
+    /**
+     * Registers a supplier of the reader for the type, which is called on the first use, and takes precedence over the location of the type
+     * <p>
+     * If the supplier returns {@code null}, the location of the type is loaded instead. The registry does not close supplied readers
+     *
+     * @param type the database type
+     * @param supplier the supplier of the reader, such as a lazy bean lookup
+     */
+    public void register(@Nonnull GeoDatabaseType type, @Nonnull Supplier<DatabaseReader> supplier) {
+        suppliers.set(type.ordinal(), supplier);
+    }
+
+    /**
+     * Returns whether a database of the type is available or not, without loading it
+     */
+    public boolean contains(@Nonnull GeoDatabaseType type) {
+        return readers.get(type.ordinal()) != null || suppliers.get(type.ordinal()) != null || locations.containsKey(type);
+    }
+
+    /**
+     * Returns the reader of the type, loads it on the first call
+     *
+     * @param type the database type
+     *
+     * @return the reader of the type, or {@code null} if no database of the type is available
+     */
+    @Nullable
+    public DatabaseReader getReader(@Nonnull GeoDatabaseType type) throws IOException {
+        DatabaseReader reader = readers.get(type.ordinal());
+        if (reader != null) {
+            return reader;
+        }
+        Supplier<DatabaseReader> supplier = suppliers.get(type.ordinal());
+        if (supplier != null) {
+            // Outside of the lock, the supplier may take locks of its own
+            reader = supplier.get();
+            if (reader != null) {
+                return readers.compareAndSet(type.ordinal(), null, reader) ? reader : readers.get(type.ordinal());
+            }
+        }
+        return loadReader(type);
+    }
+
+    /**
+     * Returns the reader of the type, loads it from the location of the type on the first call, regardless of the registered suppliers
+     * <p>
+     * A location that failed to load is not loaded again, the failure is thrown instead
+     *
+     * @param type the database type
+     *
+     * @return the reader of the type, or {@code null} if no location of the type
+     */
+    @Nullable
+    public DatabaseReader loadReader(@Nonnull GeoDatabaseType type) throws IOException {
+        String location = locations.get(type);
+        if (location == null) {
+            return null;
+        }
+        synchronized (loadedReaders) {
+            if (closed) {
+                throw new IOException("Database registry has been closed");
+            }
+            DatabaseReader reader = loadedReaders.get(location);
+            if (reader == null) {
+                IOException failure = failedLocations.get(location);
+                if (failure != null) {
+                    throw new IOException("Loading " + type.getValue() + " database from '" + location + "' has failed", failure);
+                }
+                try {
+                    reader = pooled ? GeoDatabaseReaderPool.acquire(localFile, location) : GeoDatabaseUtils.getDatabaseReader(localFile, location);
+                } catch (IOException | RuntimeException ex) {
+                    failedLocations.put(location, (ex instanceof IOException exception) ? exception : new IOException(ex));
+                    throw ex;
+                }
+                loadedReaders.put(location, reader);
+                if (log.isDebugEnabled()) {
+                    log.debug("Loaded " + type.getValue() + " database from '" + location + "'");
+                }
+            }
+            readers.compareAndSet(type.ordinal(), null, reader);
+            return readers.get(type.ordinal());
+        }
+    }
+
+    /**
+     * Returns the types whose readers have been loaded or registered
+     */
+    @Nonnull
+    public Set<GeoDatabaseType> getLoadedTypes() {
+        Set<GeoDatabaseType> result = EnumSet.noneOf(GeoDatabaseType.class);
+        for (GeoDatabaseType type : TYPES) {
+            if (readers.get(type.ordinal()) != null) {
+                result.add(type);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Set<DatabaseReader> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (loadedReaders) {
+            closed = true;
+            owned.addAll(loadedReaders.values());
+            loadedReaders.clear();
+        }
+        for (GeoDatabaseType type : TYPES) {
+            if (owned.contains(readers.get(type.ordinal()))) {
+                readers.set(type.ordinal(), null);
+            }
+        }
+        IOException failure = null;
+        for (DatabaseReader reader : owned) {
+            try {
+                if (pooled) {
+                    GeoDatabaseReaderPool.release(reader);
+                } else {
+                    reader.close();
+                }
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.support;
+
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import jakarta.annotation.Nullable;
+import com.yookue.commonplexus.javaseutil.util.NumberUtilsWraps;
+import lombok.Getter;
+
+
+/**
+ * Limiter for the calls to the remote site
+ * <p>
+ * Combines a bulkhead, which caps the number of concurrent calls, and a token bucket, which caps the number of calls per second.
+ * Both of them never wait, a call that exceeds any limit is rejected immediately.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class GeoRemoteLimiter {
+    /**
+     * Maximum concurrent calls, zero means unlimited
+     */
+    @Getter
+    private final int maxConcurrentRequests;
+
+    /**
+     * Maximum calls per second, zero means unlimited
+     */
+    @Getter
+    private final int maxRequestsPerSecond;
+
+    private final Semaphore bulkhead;
+    private final Object bucketLock = new Object();
+    private double bucketTokens;
+    private long bucketRefillNanos;
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final LongAdder acquiredCount = new LongAdder();
+    private final LongAdder bulkheadRejectedCount = new LongAdder();
+    private final LongAdder rateRejectedCount = new LongAdder();
+
+    public GeoRemoteLimiter(@Nullable Integer maxConcurrentRequests, @Nullable Integer maxRequestsPerSecond) {
+        this.maxConcurrentRequests = NumberUtilsWraps.isPositive(maxConcurrentRequests) ? maxConcurrentRequests : 0;
+        this.maxRequestsPerSecond = NumberUtilsWraps.isPositive(maxRequestsPerSecond) ? maxRequestsPerSecond : 0;
+        this.bulkhead = (this.maxConcurrentRequests > 0) ? new Semaphore(this.maxConcurrentRequests) : null;
+        this.bucketTokens = this.maxRequestsPerSecond;
+        this.bucketRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Acquires a slot of the bulkhead, without waiting
+     *
+     * @return whether the slot is acquired or not, if acquired, {@link #releaseConcurrency()} must be called after the call
+     */
+    public boolean tryAcquireConcurrency() {
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            bulkheadRejectedCount.increment();
+            return false;
+        }
+        activeCount.incrementAndGet();
+        return true;
+    }
+
+    public void releaseConcurrency() {
+        activeCount.decrementAndGet();
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Acquires a token of the token bucket, without waiting
+     *
+     * @return whether the token is acquired or not
+     */
+    public boolean tryAcquireRate() {
+        if (maxRequestsPerSecond > 0) {
+            synchronized (bucketLock) {
+                long now = System.nanoTime();
+                bucketTokens = Math.min(maxRequestsPerSecond, bucketTokens + (now - bucketRefillNanos) * maxRequestsPerSecond / 1_000_000_000D);
+                bucketRefillNanos = now;
+                if (bucketTokens < 1D) {
+                    rateRejectedCount.increment();
+                    return false;
+                }
+                bucketTokens -= 1D;
+            }
+        }
+        acquiredCount.increment();
+        return true;
+    }
+
+    public int getActiveRequests() {
+        return activeCount.get();
+    }
+
+    public double getAvailableTokens() {
+        if (maxRequestsPerSecond <= 0) {
+            return Double.NaN;
+        }
+        synchronized (bucketLock) {
+            return Math.min(maxRequestsPerSecond, bucketTokens + (System.nanoTime() - bucketRefillNanos) * maxRequestsPerSecond / 1_000_000_000D);
+        }
+    }
+
+    public long getAcquiredRequests() {
+        return acquiredCount.sum();
+    }
+
+    public long getBulkheadRejectedRequests() {
+        return bulkheadRejectedCount.sum();
+    }
+
+    public long getRateRejectedRequests() {
+        return rateRejectedCount.sum();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.support;
+
+
+import jakarta.annotation.Nonnull;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+
+
+/**
+ * Metrics binder for {@link com.yookue.springstarter.geolocation.support.GeoRemoteLimiter}
+ *
+ * @author David Hsing
+ */
+@AllArgsConstructor
+@SuppressWarnings("unused")
+public class GeoRemoteLimiterMetrics implements MeterBinder {
+    public static final String METRIC_PREFIX = "geo.location.remote";    // $NON-NLS-1$
+
+    private final GeoRemoteLimiter limiter;
+
+    @Override
+    public void bindTo(@Nonnull MeterRegistry registry) {
+        Gauge.builder(METRIC_PREFIX + ".active", limiter, GeoRemoteLimiter::getActiveRequests).description("Concurrent calls to the remote site").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".concurrency.max", limiter, GeoRemoteLimiter::getMaxConcurrentRequests).description("Maximum concurrent calls to the remote site, zero means unlimited").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".rate.max", limiter, GeoRemoteLimiter::getMaxRequestsPerSecond).description("Maximum calls per second to the remote site, zero means unlimited").baseUnit("requests").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".rate.tokens", limiter, GeoRemoteLimiter::getAvailableTokens).description("Available tokens of the rate limiter").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", limiter, GeoRemoteLimiter::getAcquiredRequests).description("Calls permitted to the remote site").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".rejected", limiter, GeoRemoteLimiter::getBulkheadRejectedRequests).tag("reason", "concurrency").description("Calls rejected by the limiter").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".rejected", limiter, GeoRemoteLimiter::getRateRejectedRequests).tag("reason", "rate").description("Calls rejected by the limiter").register(registry);
+    }
+}
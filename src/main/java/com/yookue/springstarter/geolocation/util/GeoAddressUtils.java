@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.util;
+
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Utilities for IP addresses of GEO lookups
+ * <p>
+ * Unlike {@link java.net.InetAddress#getByName(String)}, parsing never resolves host names, and never throws exceptions for bad input
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public abstract class GeoAddressUtils {
+    /**
+     * Returns the address of the IPv4 or IPv6 literal
+     * <p>
+     * IPv4 literals must be in dotted-quad form, IPv6 literals may be enclosed in brackets, and their zone id is ignored
+     *
+     * @param text the literal to parse
+     *
+     * @return the address of the literal, or {@code null} if the text is not an IP literal
+     */
+    @Nullable
+    public static InetAddress parseLiteral(@Nullable CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        int start = 0, end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start >= 2 && text.charAt(start) == '[' && text.charAt(end - 1) == ']') {
+            start++;
+            end--;
+        }
+        if (start >= end) {
+            return null;
+        }
+        byte[] bytes = (indexOf(text, ':', start, end) >= 0) ? parseIpv6(text, start, end) : parseIpv4(text, start, end, null, 0);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException ignored) {
+            // Never happens with 4 or 16 bytes
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the address is a lan address or not
+     * <p>
+     * Lan addresses include wildcard, loopback, link-local, site-local, IPv6 unique local (fc00::/7) and shared (100.64.0.0/10) addresses
+     *
+     * @param address the address to check
+     *
+     * @return whether the address is a lan address or not
+     */
+    public static boolean isLanAddress(@Nonnull InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress() || address.isSiteLocalAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet6Address) {
+            return (bytes[0] & 0xFE) == 0xFC;
+        }
+        return (bytes[0] & 0xFF) == 100 && (bytes[1] & 0xC0) == 64;
+    }
+
+    @Nullable
+    private static byte[] parseIpv4(@Nonnull CharSequence text, int start, int end, @Nullable byte[] target, int offset) {
+        byte[] result = (target != null) ? target : new byte[4];
+        int part = 0, value = 0, digits = 0;
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            if (ch == '.') {
+                if (digits == 0 || part == 3) {
+                    return null;
+                }
+                result[offset + part++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (ch >= '0' && ch <= '9') {
+                if (digits > 0 && value == 0) {
+                    // Leading zeros are ambiguous (octal or decimal)
+                    return null;
+                }
+                value = value * 10 + (ch - '0');
+                if (++digits > 3 || value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        if (part != 3 || digits == 0) {
+            return null;
+        }
+        result[offset + 3] = (byte) value;
+        return result;
+    }
+
+    @Nullable
+    private static byte[] parseIpv6(@Nonnull CharSequence text, int start, int end) {
+        int zone = indexOf(text, '%', start, end);
+        if (zone == start) {
+            return null;
+        }
+        if (zone > 0) {
+            end = zone;
+        }
+        int compress = -1;
+        for (int i = start; i + 1 < end; i++) {
+            if (text.charAt(i) == ':' && text.charAt(i + 1) == ':') {
+                if (compress >= 0) {
+                    return null;
+                }
+                compress = i;
+                i++;
+            }
+        }
+        byte[] result = new byte[16];
+        if (compress < 0) {
+            return (parseIpv6Groups(text, start, end, result, 0) == 16) ? result : null;
+        }
+        byte[] tail = new byte[16];
+        int headLength = (compress == start) ? 0 : parseIpv6Groups(text, start, compress, result, 0);
+        int tailLength = (compress + 2 == end) ? 0 : parseIpv6Groups(text, compress + 2, end, tail, 0);
+        if (headLength < 0 || tailLength < 0 || headLength + tailLength > 14) {
+            return null;
+        }
+        System.arraycopy(tail, 0, result, 16 - tailLength, tailLength);
+        return result;
+    }
+
+    /**
+     * Parses colon separated groups, the last group may be an embedded IPv4 literal
+     *
+     * @return the number of bytes parsed, or -1 if invalid
+     */
+    private static int parseIpv6Groups(@Nonnull CharSequence text, int start, int end, @Nonnull byte[] target, int offset) {
+        int position = offset, groupStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i < end && text.charAt(i) != ':') {
+                continue;
+            }
+            if (i == groupStart || position >= 16) {
+                return -1;
+            }
+            if (i == end && indexOf(text, '.', groupStart, end) >= 0) {
+                if (position > 12 || parseIpv4(text, groupStart, end, target, position) == null) {
+                    return -1;
+                }
+                return position + 4 - offset;
+            }
+            int value = 0;
+            if (i - groupStart > 4) {
+                return -1;
+            }
+            for (int j = groupStart; j < i; j++) {
+                char ch = text.charAt(j);
+                int digit = (ch < 128) ? Character.digit(ch, 16) : -1;
+                if (digit < 0) {
+                    return -1;
+                }
+                value = (value << 4) | digit;
+            }
+            target[position++] = (byte) (value >>> 8);
+            target[position++] = (byte) value;
+            groupStart = i + 1;
+        }
+        return position - offset;
+    }
+
+    private static int indexOf(@Nonnull CharSequence text, char ch, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
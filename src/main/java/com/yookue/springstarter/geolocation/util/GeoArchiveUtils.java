@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.util;
+
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.Resource;
+import lombok.extern.apachecommons.CommonsLog;
+
+
+/**
+ * Utilities for compressed GEO database archives
+ * <p>
+ * Supports gzip compressed databases ({@code .mmdb.gz}) and gzip compressed tarballs ({@code .tar.gz} or {@code .tgz}) as MaxMind ships them.
+ * Archives are extracted into cache files named after the checksums of the archives, so unchanged archives are never extracted again.
+ * Since the cache files are trusted by their names, the directory must be owned by the current user and not writable by others.
+ *
+ * @author David Hsing
+ */
+@CommonsLog
+@SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted"})
+public abstract class GeoArchiveUtils {
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String DATABASE_EXTENSION = ".mmdb";    // $NON-NLS-1$
+
+    /**
+     * Returns whether the location is a compressed archive or not, judged by its extension
+     */
+    public static boolean isArchive(@Nullable String location) {
+        return StringUtils.endsWithIgnoreCase(location, ".gz") || StringUtils.endsWithIgnoreCase(location, ".tgz");    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    /**
+     * Returns the default directory of the extracted databases, which is per user under the {@code java.io.tmpdir} directory
+     */
+    @Nonnull
+    public static Path getDefaultExtractDirectory() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "geo-location-" + System.getProperty("user.name"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+    }
+
+    /**
+     * Returns the extracted database of the archive, extracts it if the archive has not been extracted before
+     * <p>
+     * The archive is decompressed in a single streaming pass into a temporary file, which is then moved atomically to the cache file.
+     * The directory is created accessible to the current user only, and the older extractions of the same database are deleted afterwards
+     *
+     * @param archive the archive resource
+     * @param directory the directory of the extracted databases
+     *
+     * @return the extracted database of the archive
+     *
+     * @throws java.nio.file.AccessDeniedException if the directory is not owned by the current user, or writable by others
+     */
+    @Nonnull
+    public static Path extractDatabase(@Nonnull Resource archive, @Nonnull Path directory) throws IOException {
+        String filename = StringUtils.defaultIfBlank(archive.getFilename(), "database.mmdb.gz");    // $NON-NLS-1$
+        boolean tarball = StringUtils.endsWithIgnoreCase(filename, ".tar.gz") || StringUtils.endsWithIgnoreCase(filename, ".tgz");    // $NON-NLS-1$ // $NON-NLS-2$
+        String basename = StringUtils.removeEndIgnoreCase(StringUtils.removeEndIgnoreCase(StringUtils.removeEndIgnoreCase(StringUtils.removeEndIgnoreCase(filename, ".gz"), ".tgz"), ".tar"), DATABASE_EXTENSION);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        long checksum = GeoDatabaseUtils.getResourceChecksum(archive);
+        Path target = directory.resolve(basename + '-' + Long.toHexString(checksum) + DATABASE_EXTENSION);
+        prepareDirectory(directory);
+        if (Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+            return target;
+        }
+        Path temporary = Files.createTempFile(directory, basename, ".tmp");    // $NON-NLS-1$
+        try {
+            try (InputStream stream = new GZIPInputStream(new BufferedInputStream(archive.getInputStream(), COPY_BUFFER_SIZE), COPY_BUFFER_SIZE); OutputStream output = Files.newOutputStream(temporary)) {
+                if (tarball) {
+                    copyTarDatabase(stream, output);
+                } else {
+                    stream.transferTo(output);
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Extracted database archive '" + filename + "' to '" + target + "'");
+        }
+        deleteExtractions(directory, basename, target);
+        return target;
+    }
+
+    /**
+     * Creates the directory accessible to the current user only if absent, and checks that it is not accessible to others for writing
+     */
+    private static void prepareDirectory(@Nonnull Path directory) throws IOException {
+        boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");    // $NON-NLS-1$
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            Files.createDirectories(directory.toAbsolutePath().getParent());
+            try {
+                if (posix) {
+                    Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));    // $NON-NLS-1$
+                } else {
+                    Files.createDirectory(directory);
+                }
+            } catch (FileAlreadyExistsException ignored) {
+                // Created concurrently, checked below
+            }
+        }
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            throw new AccessDeniedException(directory.toString(), null, "Extract directory is not a directory");
+        }
+        UserPrincipal owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS), user;
+        // Files created by this process are owned by the current user, even if it has no name
+        Path probe = Files.createTempFile(directory, "owner", ".tmp");    // $NON-NLS-1$ // $NON-NLS-2$
+        try {
+            user = Files.getOwner(probe, LinkOption.NOFOLLOW_LINKS);
+        } finally {
+            Files.deleteIfExists(probe);
+        }
+        if (!owner.equals(user)) {
+            throw new AccessDeniedException(directory.toString(), null, "Extract directory is owned by '" + owner.getName() + "' rather than the current user");
+        }
+        if (posix) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+            if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                throw new AccessDeniedException(directory.toString(), null, "Extract directory is writable by others");
+            }
+        }
+    }
+
+    /**
+     * Deletes the extractions of the database other than the target, which are left by the older archives
+     */
+    private static void deleteExtractions(@Nonnull Path directory, @Nonnull String basename, @Nonnull Path target) {
+        Pattern pattern = Pattern.compile(Pattern.quote(basename) + "-[0-9a-f]+" + Pattern.quote(DATABASE_EXTENSION));    // $NON-NLS-1$
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, path -> pattern.matcher(path.getFileName().toString()).matches())) {
+            for (Path path : paths) {
+                if (!path.equals(target)) {
+                    // Readers that have mapped the file keep working on POSIX systems
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException ex) {
+            if (log.isDebugEnabled()) {
+                log.debug("Delete older extractions of '" + basename + "' failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Copies the first database entry of the tar stream
+     */
+    private static void copyTarDatabase(@Nonnull InputStream stream, @Nonnull OutputStream output) throws IOException {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        String longName = null;
+        while (readBlock(stream, header)) {
+            if (isZeroBlock(header)) {
+                break;
+            }
+            String name = (longName != null) ? longName : readTarName(header);
+            longName = null;
+            long size = readTarSize(header);
+            long padding = (TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE;
+            char type = (char) header[156];
+            if (type == 'L' || type == 'x') {
+                // GNU long name, or PAX extended header
+                String content = new String(stream.readNBytes((int) size), StandardCharsets.UTF_8);
+                stream.skipNBytes(padding);
+                longName = (type == 'L') ? StringUtils.substringBefore(content, '\0') : readPaxPath(content);
+                continue;
+            }
+            if ((type == '0' || type == '\0') && StringUtils.endsWithIgnoreCase(name, DATABASE_EXTENSION)) {
+                copyBytes(stream, output, size);
+                return;
+            }
+            stream.skipNBytes(size + padding);
+        }
+        throw new FileNotFoundException("No database entry in the archive");
+    }
+
+    private static boolean readBlock(@Nonnull InputStream stream, @Nonnull byte[] block) throws IOException {
+        int length = stream.readNBytes(block, 0, block.length);
+        if (length == 0) {
+            return false;
+        }
+        if (length < block.length) {
+            throw new EOFException("Truncated tar header");
+        }
+        return true;
+    }
+
+    private static boolean isZeroBlock(@Nonnull byte[] block) {
+        for (byte value : block) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    private static String readTarName(@Nonnull byte[] header) {
+        String name = readTarString(header, 0, 100);
+        if ("ustar".equals(readTarString(header, 257, 6).trim())) {    // $NON-NLS-1$
+            String prefix = readTarString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                return prefix + '/' + name;
+            }
+        }
+        return name;
+    }
+
+    private static long readTarSize(@Nonnull byte[] header) throws IOException {
+        if ((header[124] & 0x80) != 0) {
+            // GNU base-256 encoding
+            long size = 0L;
+            for (int i = 125; i < 136; i++) {
+                size = (size << 8) | (header[i] & 0xFF);
+            }
+            return size;
+        }
+        String octal = readTarString(header, 124, 12).trim();
+        try {
+            return octal.isEmpty() ? 0L : Long.parseLong(octal, 8);
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid tar entry size '" + octal + "'", ex);
+        }
+    }
+
+    @Nonnull
+    private static String readTarString(@Nonnull byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    private static String readPaxPath(@Nonnull String content) {
+        for (String record : StringUtils.split(content, '\n')) {
+            String keyValue = StringUtils.substringAfter(record, ' ');
+            if (StringUtils.startsWith(keyValue, "path=")) {    // $NON-NLS-1$
+                return StringUtils.removeStart(keyValue, "path=");    // $NON-NLS-1$
+            }
+        }
+        return null;
+    }
+
+    private static void copyBytes(@Nonnull InputStream stream, @Nonnull OutputStream output, long size) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long remaining = size;
+        while (remaining > 0L) {
+            int length = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (length < 0) {
+                throw new EOFException("Truncated tar entry");
+            }
+            output.write(buffer, 0, length);
+            remaining -= length;
+        }
+    }
+}
@@ -19,11 +19,22 @@ package com.yookue.springstarter.geolocation.util;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.util.CollectionUtils;
 import com.maxmind.db.CHMCache;
 import com.maxmind.db.NoCache;
+import com.maxmind.db.Reader;
 import com.maxmind.geoip2.DatabaseReader;
 import com.yookue.commonplexus.javaseutil.util.NumberUtilsWraps;
 import com.yookue.commonplexus.springutil.util.ResourceUtilsWraps;
@@ -38,28 +49,42 @@ import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
  */
 @SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
 public abstract class GeoDatabaseUtils {
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+
     @Nonnull
     public static DatabaseReader getDatabaseReader(@Nonnull GeoLocationProperties properties, @Nonnull GeoDatabaseType type) throws IOException {
         GeoLocationProperties.LocalFile localFile = properties.getLocalFile();
-        String location = null;
-        switch (type) {
-            case COUNTRY:
-                location = localFile.getCountryDb();
-                break;
-            case CITY:
-                location = localFile.getCityDb();
-                break;
-            case ASN:
-                location = localFile.getAsnDb();
-                break;
-            default:
-                break;
-        }
-        Resource resource = ResourceUtilsWraps.determineResource(location);
-        if (resource == null || !resource.exists() || !resource.isReadable()) {
-            throw new FileNotFoundException("Location database is not exists or readable");
-        }
-        DatabaseReader.Builder builder = new DatabaseReader.Builder(resource.getInputStream());
+        return getDatabaseReader(localFile, getDatabaseLocations(localFile).get(type));
+    }
+
+    /**
+     * Returns a reader of the database location
+     * <p>
+     * Databases on the file system are memory-mapped, others are loaded into the heap
+     *
+     * @param localFile the local file properties
+     * @param location the database location
+     *
+     * @return a reader of the database location
+     */
+    @Nonnull
+    public static DatabaseReader getDatabaseReader(@Nonnull GeoLocationProperties.LocalFile localFile, @Nullable String location) throws IOException {
+        return getDatabaseReader(localFile, getDatabaseResource(localFile, location));
+    }
+
+    /**
+     * Returns a reader of the database resource
+     * <p>
+     * Databases on the file system are memory-mapped, others are loaded into the heap
+     *
+     * @param localFile the local file properties
+     * @param resource the database resource
+     *
+     * @return a reader of the database resource
+     */
+    @Nonnull
+    public static DatabaseReader getDatabaseReader(@Nonnull GeoLocationProperties.LocalFile localFile, @Nonnull Resource resource) throws IOException {
+        DatabaseReader.Builder builder = resource.isFile() ? new DatabaseReader.Builder(resource.getFile()).fileMode(Reader.FileMode.MEMORY_MAPPED) : new DatabaseReader.Builder(resource.getInputStream());
         if (!CollectionUtils.isEmpty(localFile.getLocales())) {
             builder.locales(localFile.getLocales());
         }
@@ -75,4 +100,104 @@ public abstract class GeoDatabaseUtils {
         }
         return builder.build();
     }
+
+    /**
+     * Returns the readable resource of the database location
+     *
+     * @param location the database location
+     *
+     * @return the readable resource of the database location
+     *
+     * @throws FileNotFoundException if the resource is not exists or readable
+     */
+    @Nonnull
+    public static Resource getDatabaseResource(@Nullable String location) throws IOException {
+        Resource resource = ResourceUtilsWraps.determineResource(location);
+        if (resource == null || !resource.exists() || !resource.isReadable()) {
+            throw new FileNotFoundException("Location database is not exists or readable");
+        }
+        return resource;
+    }
+
+    /**
+     * Returns the readable resource of the database location, extracts it first if the location is a compressed archive
+     *
+     * @param localFile the local file properties
+     * @param location the database location
+     *
+     * @return the readable resource of the database location
+     *
+     * @throws FileNotFoundException if the resource is not exists or readable
+     * @see com.yookue.springstarter.geolocation.util.GeoArchiveUtils
+     */
+    @Nonnull
+    public static Resource getDatabaseResource(@Nonnull GeoLocationProperties.LocalFile localFile, @Nullable String location) throws IOException {
+        Resource resource = getDatabaseResource(location);
+        if (!GeoArchiveUtils.isArchive(location)) {
+            return resource;
+        }
+        Path directory = StringUtils.isNotBlank(localFile.getExtractDir()) ? Paths.get(localFile.getExtractDir()) : GeoArchiveUtils.getDefaultExtractDirectory();
+        return new FileSystemResource(GeoArchiveUtils.extractDatabase(resource, directory));
+    }
+
+    /**
+     * Returns the identity of the database resource, the real path for files, or the URL for others
+     *
+     * @param resource the database resource
+     *
+     * @return the identity of the database resource
+     */
+    @Nonnull
+    public static String getResourceIdentity(@Nonnull Resource resource) throws IOException {
+        return resource.isFile() ? resource.getFile().toPath().toRealPath().toString() : resource.getURL().toExternalForm();
+    }
+
+    /**
+     * Returns the CRC32C checksum of the database resource content
+     *
+     * @param resource the database resource
+     *
+     * @return the CRC32C checksum of the database resource content
+     */
+    public static long getResourceChecksum(@Nonnull Resource resource) throws IOException {
+        Checksum checksum = new CRC32C();
+        byte[] buffer = new byte[CHECKSUM_BUFFER_SIZE];
+        try (InputStream stream = resource.getInputStream()) {
+            for (int length = stream.read(buffer); length >= 0; length = stream.read(buffer)) {
+                checksum.update(buffer, 0, length);
+            }
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Returns the database locations of the local file properties
+     * <p>
+     * The locations of {@code country-db}, {@code city-db} and {@code asn-db} take precedence over the ones of {@code databases}
+     *
+     * @param localFile the local file properties
+     *
+     * @return the database locations of the local file properties
+     */
+    @Nonnull
+    public static Map<GeoDatabaseType, String> getDatabaseLocations(@Nonnull GeoLocationProperties.LocalFile localFile) {
+        Map<GeoDatabaseType, String> result = new EnumMap<>(GeoDatabaseType.class);
+        if (!CollectionUtils.isEmpty(localFile.getDatabases())) {
+            localFile.getDatabases().forEach((type, location) -> {
+                if (type != null && StringUtils.isNotBlank(location)) {
+                    result.put(type, location);
+                }
+            });
+        }
+        if (StringUtils.isNotBlank(localFile.getCountryDb())) {
+            result.put(GeoDatabaseType.COUNTRY, localFile.getCountryDb());
+        }
+        if (StringUtils.isNotBlank(localFile.getCityDb())) {
+            result.put(GeoDatabaseType.CITY, localFile.getCityDb());
+        }
+        if (StringUtils.isNotBlank(localFile.getAsnDb())) {
+            result.put(GeoDatabaseType.ASN, localFile.getAsnDb());
+        }
+        return result;
+    }
 }
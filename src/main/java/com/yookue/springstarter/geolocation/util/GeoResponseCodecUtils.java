@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.util;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.maxmind.geoip2.record.City;
+import com.maxmind.geoip2.record.Country;
+
+
+/**
+ * Utilities for encoding GEO responses into a compact binary format
+ * <p>
+ * Only the country and city records are retained, which are what {@link com.yookue.springstarter.geolocation.composer.GeoLocationResolver} consumes,
+ * so the decoded responses carry no location, postal, subdivisions or traits records.
+ * An absent response is encoded too, so that not-found results can be cached as well.
+ * Each encoded response carries its expiry time, expired ones decode as not decodable.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public abstract class GeoResponseCodecUtils {
+    private static final byte FORMAT_VERSION = 2;
+    private static final int HEADER_LENGTH = 10;
+    private static final byte KIND_ABSENT = 0;
+    private static final byte KIND_COUNTRY = 1;
+    private static final byte KIND_CITY = 2;
+
+    @Nonnull
+    public static byte[] encodeCountry(@Nullable CountryResponse response) {
+        return encodeCountry(response, 0L);
+    }
+
+    /**
+     * Returns the encoded country response
+     *
+     * @param response the country response, or {@code null} if not found
+     * @param expiresAt the expiry time in epoch milliseconds, zero or negative means never expire
+     *
+     * @return the encoded country response
+     */
+    @Nonnull
+    public static byte[] encodeCountry(@Nullable CountryResponse response, long expiresAt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT_VERSION);
+            output.writeByte(response == null ? KIND_ABSENT : KIND_COUNTRY);
+            output.writeLong(Math.max(expiresAt, 0L));
+            if (response != null) {
+                writeCountry(output, response.getCountry());
+            }
+        } catch (IOException ignored) {
+            // ByteArrayOutputStream never throws
+        }
+        return bytes.toByteArray();
+    }
+
+    @Nonnull
+    public static byte[] encodeCity(@Nullable CityResponse response) {
+        return encodeCity(response, 0L);
+    }
+
+    /**
+     * Returns the encoded city response
+     *
+     * @param response the city response, or {@code null} if not found
+     * @param expiresAt the expiry time in epoch milliseconds, zero or negative means never expire
+     *
+     * @return the encoded city response
+     */
+    @Nonnull
+    public static byte[] encodeCity(@Nullable CityResponse response, long expiresAt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT_VERSION);
+            output.writeByte(response == null ? KIND_ABSENT : KIND_CITY);
+            output.writeLong(Math.max(expiresAt, 0L));
+            if (response != null) {
+                writeCountry(output, response.getCountry());
+                writeCity(output, response.getCity());
+            }
+        } catch (IOException ignored) {
+            // ByteArrayOutputStream never throws
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the decoded country response
+     *
+     * @param bytes the encoded bytes
+     * @param locales the locales to resolve names with
+     *
+     * @return the decoded country response, an empty optional if the encoded response is absent, or {@code null} if the bytes are not decodable or expired
+     */
+    @Nullable
+    @SuppressWarnings("OptionalAssignedToNull")
+    public static Optional<CountryResponse> decodeCountry(@Nullable byte[] bytes, @Nonnull List<String> locales) {
+        if (!isDecodable(bytes)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH))) {
+            switch (bytes[1]) {
+                case KIND_ABSENT:
+                    return Optional.empty();
+                case KIND_COUNTRY:
+                    return Optional.of(new CountryResponse(null, readCountry(input, locales), null, null, null, null));
+                default:
+                    return null;
+            }
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Returns the decoded city response
+     *
+     * @param bytes the encoded bytes
+     * @param locales the locales to resolve names with
+     *
+     * @return the decoded city response, an empty optional if the encoded response is absent, or {@code null} if the bytes are not decodable or expired
+     */
+    @Nullable
+    @SuppressWarnings("OptionalAssignedToNull")
+    public static Optional<CityResponse> decodeCity(@Nullable byte[] bytes, @Nonnull List<String> locales) {
+        if (!isDecodable(bytes)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH))) {
+            switch (bytes[1]) {
+                case KIND_ABSENT:
+                    return Optional.empty();
+                case KIND_CITY:
+                    Country country = readCountry(input, locales);
+                    City city = readCity(input, locales);
+                    return Optional.of(new CityResponse(city, null, country, null, null, null, null, null, null, null));
+                default:
+                    return null;
+            }
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Returns the expiry time of the encoded response
+     *
+     * @param bytes the encoded bytes
+     *
+     * @return the expiry time in epoch milliseconds, or zero if never expire or the bytes are not decodable
+     */
+    public static long getExpiresAt(@Nullable byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != FORMAT_VERSION) {
+            return 0L;
+        }
+        long expiresAt = 0L;
+        for (int i = 2; i < HEADER_LENGTH; i++) {
+            expiresAt = (expiresAt << 8) | (bytes[i] & 0xFFL);
+        }
+        return expiresAt;
+    }
+
+    private static boolean isDecodable(@Nullable byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != FORMAT_VERSION) {
+            return false;
+        }
+        long expiresAt = getExpiresAt(bytes);
+        return expiresAt <= 0L || expiresAt > System.currentTimeMillis();
+    }
+
+    private static void writeCountry(@Nonnull DataOutputStream output, @Nonnull Country country) throws IOException {
+        output.writeUTF(StringUtils.defaultString(country.getIsoCode()));
+        output.writeLong(country.getGeoNameId() == null ? -1L : country.getGeoNameId());
+        writeNames(output, country.getNames());
+    }
+
+    private static void writeCity(@Nonnull DataOutputStream output, @Nonnull City city) throws IOException {
+        output.writeLong(city.getGeoNameId() == null ? -1L : city.getGeoNameId());
+        writeNames(output, city.getNames());
+    }
+
+    private static void writeNames(@Nonnull DataOutputStream output, @Nullable Map<String, String> names) throws IOException {
+        if (names == null || names.isEmpty()) {
+            output.writeShort(0);
+            return;
+        }
+        output.writeShort(names.size());
+        for (Map.Entry<String, String> entry : names.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeUTF(StringUtils.defaultString(entry.getValue()));
+        }
+    }
+
+    @Nonnull
+    private static Country readCountry(@Nonnull DataInputStream input, @Nonnull List<String> locales) throws IOException {
+        String isoCode = StringUtils.trimToNull(input.readUTF());
+        long geoNameId = input.readLong();
+        Map<String, String> names = readNames(input);
+        return new Country(locales, null, geoNameId < 0L ? null : geoNameId, false, isoCode, names);
+    }
+
+    @Nonnull
+    private static City readCity(@Nonnull DataInputStream input, @Nonnull List<String> locales) throws IOException {
+        long geoNameId = input.readLong();
+        Map<String, String> names = readNames(input);
+        return new City(locales, null, geoNameId < 0L ? null : geoNameId, names);
+    }
+
+    @Nonnull
+    private static Map<String, String> readNames(@Nonnull DataInputStream input) throws IOException {
+        int size = input.readUnsignedShort();
+        Map<String, String> names = new LinkedHashMap<>(Math.max(size * 2, 2));
+        for (int i = 0; i < size; i++) {
+            names.put(input.readUTF(), input.readUTF());
+        }
+        return names;
+    }
+}
@@ -20,11 +20,16 @@ package com.yookue.springstarter.geolocation;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Optional;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.aot.DisabledInAotMode;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.WebServiceClient;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
@@ -37,7 +42,13 @@ import com.yookue.springstarter.geolocation.config.GeoLocationAutoConfiguration;
 import lombok.extern.slf4j.Slf4j;
 
 
+/**
+ * Boots the sample application with the GeoLite2 databases under "src/test/resources/ipaddr", which are not shipped with the sources
+ * <p>
+ * Skipped in AOT mode, where {@link com.yookue.springstarter.geolocation.MockNativeApplicationTest} boots the application with mock databases instead
+ */
 @SpringBootTest(classes = MockApplicationInitializer.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@DisabledInAotMode
 @Slf4j
 class MockApplicationTest {
     @Autowired(required = false)
@@ -54,6 +65,27 @@ class MockApplicationTest {
 
     private static final String IP_ADDRESS = "128.101.101.101";    // $NON-NLS-1$
     private static final InetAddress INET_ADDRESS = InetAddressWraps.getByName(IP_ADDRESS);
+    private static MockGeoWebServer webServer;
+
+    @BeforeAll
+    static void startWebServer() throws IOException {
+        webServer = new MockGeoWebServer();
+    }
+
+    @AfterAll
+    static void stopWebServer() {
+        webServer.close();
+    }
+
+    /**
+     * Points the remote site to the offline stand-in, rather than the live service
+     */
+    @DynamicPropertySource
+    static void remoteSiteProperties(DynamicPropertyRegistry registry) {
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".remote-site.host", () -> "localhost");    // $NON-NLS-1$ // $NON-NLS-2$
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".remote-site.port", () -> webServer.getPort());    // $NON-NLS-1$
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".remote-site.use-https", () -> false);    // $NON-NLS-1$
+    }
 
     @Test
     void countryLocal() throws IOException, GeoIp2Exception {
@@ -77,6 +109,7 @@ class MockApplicationTest {
         String methodName = StackTraceWraps.getExecutingMethodName();
         CountryResponse countryResponse = webServiceClient.country(INET_ADDRESS);
         Optional.ofNullable(countryResponse).ifPresent(element -> log.info("{} = IP '{}' country is '{}'", methodName, IP_ADDRESS, element.getCountry().getName()));
+        Assertions.assertEquals("US", countryResponse.getCountry().getIsoCode());    // $NON-NLS-1$
     }
 
     @Test
@@ -85,5 +118,6 @@ class MockApplicationTest {
         String methodName = StackTraceWraps.getExecutingMethodName();
         CityResponse cityResponse = webServiceClient.city(INET_ADDRESS);
         Optional.ofNullable(cityResponse).ifPresent(element -> log.info("{} = IP '{}' city is '{}'", methodName, IP_ADDRESS, element.getCity().getName()));
+        Assertions.assertEquals("Minneapolis", cityResponse.getCity().getName());    // $NON-NLS-1$
     }
 }
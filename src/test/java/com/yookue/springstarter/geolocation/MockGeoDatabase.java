@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Writer of tiny MaxMind DB files for tests
+ * <p>
+ * Every IPv4 address resolves to the given record, while every IPv6 address beyond {@code ::/1} is not found
+ *
+ * @author David Hsing
+ * @reference "https://maxmind.github.io/MaxMind-DB/"
+ */
+@SuppressWarnings({"unused", "JavadocDeclaration", "JavadocLinkAsPlainText"})
+public abstract class MockGeoDatabase {
+    private static final byte[] METADATA_MARKER = {(byte) 0xAB, (byte) 0xCD, (byte) 0xEF, 'M', 'a', 'x', 'M', 'i', 'n', 'd', '.', 'c', 'o', 'm'};
+
+    /**
+     * Writes a database file
+     *
+     * @param path the path of the file
+     * @param databaseType the database type in metadata, such as "GeoLite2-Country"
+     * @param record the record of IPv4 addresses, values may be maps, lists, strings, booleans, integers and longs
+     *
+     * @return the path of the file
+     */
+    @Nonnull
+    public static Path write(@Nonnull Path path, @Nonnull String databaseType, @Nonnull Map<String, Object> record) throws IOException {
+        Files.write(path, build(databaseType, record));
+        return path;
+    }
+
+    @Nonnull
+    public static byte[] build(@Nonnull String databaseType, @Nonnull Map<String, Object> record) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        // One node, the left record points to the data section, the right record means not found
+        int nodeCount = 1, dataRecord = nodeCount + 16;
+        output.writeBytes(new byte[] {(byte) (dataRecord >>> 16), (byte) (dataRecord >>> 8), (byte) dataRecord, 0, 0, (byte) nodeCount});
+        output.writeBytes(new byte[16]);
+        encode(output, record);
+        output.writeBytes(METADATA_MARKER);
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("binary_format_major_version", new Uint16(2));    // $NON-NLS-1$
+        metadata.put("binary_format_minor_version", new Uint16(0));    // $NON-NLS-1$
+        metadata.put("build_epoch", BigInteger.valueOf(1_600_000_000L));    // $NON-NLS-1$
+        metadata.put("database_type", databaseType);    // $NON-NLS-1$
+        metadata.put("description", Map.of("en", "Mock database"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        metadata.put("ip_version", new Uint16(6));    // $NON-NLS-1$
+        metadata.put("languages", List.of("en"));    // $NON-NLS-1$ // $NON-NLS-2$
+        metadata.put("node_count", (long) nodeCount);    // $NON-NLS-1$
+        metadata.put("record_size", new Uint16(24));    // $NON-NLS-1$
+        encode(output, metadata);
+        return output.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void encode(@Nonnull ByteArrayOutputStream output, @Nonnull Object value) {
+        if (value instanceof Map<?, ?> map) {
+            writeControl(output, 7, map.size());
+            ((Map<String, Object>) map).forEach((key, item) -> {
+                encode(output, key);
+                encode(output, item);
+            });
+        } else if (value instanceof List<?> list) {
+            writeControl(output, 11, list.size());
+            list.forEach(item -> encode(output, item));
+        } else if (value instanceof String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeControl(output, 2, bytes.length);
+            output.writeBytes(bytes);
+        } else if (value instanceof Boolean flag) {
+            writeControl(output, 14, flag ? 1 : 0);
+        } else if (value instanceof Uint16 number) {
+            writeUnsigned(output, 5, BigInteger.valueOf(number.value()));
+        } else if (value instanceof Integer number) {
+            writeUnsigned(output, 6, BigInteger.valueOf(number));
+        } else if (value instanceof Long number) {
+            writeUnsigned(output, 6, BigInteger.valueOf(number));
+        } else if (value instanceof BigInteger number) {
+            writeUnsigned(output, 9, number);
+        } else {
+            throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName());
+        }
+    }
+
+    private static void writeUnsigned(@Nonnull ByteArrayOutputStream output, int type, @Nonnull BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        int offset = (bytes.length > 1 && bytes[0] == 0) ? 1 : 0, length = bytes.length - offset;
+        if (value.signum() == 0) {
+            length = 0;
+        }
+        writeControl(output, type, length);
+        output.write(bytes, offset, length);
+    }
+
+    private static void writeControl(@Nonnull ByteArrayOutputStream output, int type, int size) {
+        if (size >= 285) {
+            throw new IllegalArgumentException("Size " + size + " is not supported");
+        }
+        // Sizes from 29 take one more byte, after the byte of the extended type if any
+        int sizeBits = Math.min(size, 29);
+        if (type <= 7) {
+            output.write((type << 5) | sizeBits);
+        } else {
+            output.write(sizeBits);
+            output.write(type - 7);
+        }
+        if (size >= 29) {
+            output.write(size - 29);
+        }
+    }
+
+
+    private record Uint16(int value) {
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import com.maxmind.geoip2.WebServiceClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * Offline stand-in of the GeoIP2 web service, with injected latency, server errors and throttling
+ * <p>
+ * Serves {@code /geoip/v2.1/{country|city}/{ip}}, site-local addresses are answered as not found.
+ * Faults are injected in exact proportions of the requests rather than randomly, so the tests are repeatable.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class MockGeoWebServer implements AutoCloseable {
+    private static final String PATH_PREFIX = "/geoip/v2.1/";    // $NON-NLS-1$
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private final AtomicInteger throttledCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger maxConcurrency = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration slowLatency = Duration.ZERO;
+    private volatile int slowEvery;
+    private volatile double errorRate;
+    private volatile double throttleRate;
+
+    public MockGeoWebServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(PATH_PREFIX, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of the requests answered with HTTP 500
+     */
+    public int getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Returns the number of the requests answered with HTTP 429
+     */
+    public int getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * Returns the maximum number of the requests in process at the same time, each of which counts until its response is being sent
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency.get();
+    }
+
+    /**
+     * Returns a client of this server
+     */
+    @Nonnull
+    public WebServiceClient newClient() {
+        return newClientBuilder().build();
+    }
+
+    /**
+     * Returns a client builder of this server, for customizing the timeouts
+     */
+    @Nonnull
+    public WebServiceClient.Builder newClientBuilder() {
+        return new WebServiceClient.Builder(42, "mock-license").host("localhost").port(getPort()).disableHttps();    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    /**
+     * Sets the latency of every request
+     */
+    public void setLatency(@Nonnull Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sets the latency of every n-th request, zero or negative n means none
+     */
+    public void setSlowLatency(@Nonnull Duration slowLatency, int every) {
+        this.slowLatency = slowLatency;
+        this.slowEvery = every;
+    }
+
+    /**
+     * Sets the proportion of the requests that are answered with HTTP 500
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Sets the proportion of the requests that are answered with HTTP 429
+     */
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(@Nonnull HttpExchange exchange) throws IOException {
+        int sequence = requestCount.incrementAndGet();
+        maxConcurrency.accumulateAndGet(activeCount.incrementAndGet(), Math::max);
+        try {
+            int every = slowEvery;
+            Duration delay = (every > 0 && sequence % every == 0) ? slowLatency : latency;
+            if (!delay.isZero()) {
+                TimeUnit.NANOSECONDS.sleep(delay.toNanos());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Before responding, since the client may send the next request once it has read the response
+            activeCount.decrementAndGet();
+        }
+        serve(exchange, sequence);
+    }
+
+    private void serve(@Nonnull HttpExchange exchange, int sequence) throws IOException {
+        if (isInjected(sequence, throttleRate)) {
+            throttledCount.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");    // $NON-NLS-1$ // $NON-NLS-2$
+            exchange.sendResponseHeaders(429, -1);
+            exchange.close();
+            return;
+        }
+        if (isInjected(sequence, errorRate)) {
+            errorCount.incrementAndGet();
+            respond(exchange, 500, "Internal Server Error");    // $NON-NLS-1$
+            return;
+        }
+        String[] segments = exchange.getRequestURI().getPath().substring(PATH_PREFIX.length()).split("/");    // $NON-NLS-1$
+        if (segments.length != 2 || !("country".equals(segments[0]) || "city".equals(segments[0]))) {    // $NON-NLS-1$ // $NON-NLS-2$
+            respond(exchange, 404, "{\"code\":\"INVALID_REQUEST\",\"error\":\"Unknown path\"}");    // $NON-NLS-1$
+            return;
+        }
+        InetAddress address = InetAddress.getByName(segments[1]);
+        if (address.isSiteLocalAddress() || address.isLoopbackAddress()) {
+            respond(exchange, 404, "{\"code\":\"IP_ADDRESS_NOT_FOUND\",\"error\":\"The address " + segments[1] + " is not in the database.\"}");    // $NON-NLS-1$ // $NON-NLS-2$
+            return;
+        }
+        String country = "\"country\":{\"iso_code\":\"US\",\"geoname_id\":6252001,\"names\":{\"en\":\"United States\"}}";    // $NON-NLS-1$
+        String city = "\"city\":{\"geoname_id\":5037649,\"names\":{\"en\":\"Minneapolis\"}},";    // $NON-NLS-1$
+        respond(exchange, 200, "{" + ("city".equals(segments[0]) ? city : "") + country + "}");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+    }
+
+    /**
+     * Returns whether the n-th request is injected or not, injecting exactly {@code floor(n * rate)} of the first n requests
+     */
+    private boolean isInjected(int sequence, double rate) {
+        return rate > 0D && Math.floor(sequence * rate) > Math.floor((sequence - 1) * rate);
+    }
+
+    private void respond(@Nonnull HttpExchange exchange, int status, @Nonnull String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");    // $NON-NLS-1$ // $NON-NLS-2$
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
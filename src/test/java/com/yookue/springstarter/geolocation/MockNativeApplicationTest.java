@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.WebServiceClient;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.yookue.springstarter.geolocation.composer.GeoLocationResolver;
+import com.yookue.springstarter.geolocation.config.GeoLocationAutoConfiguration;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Boots the sample application with mock databases and the offline stand-in of the remote site
+ * <p>
+ * Unlike {@link com.yookue.springstarter.geolocation.MockApplicationTest}, it needs no GeoLite2 databases, so it also runs in AOT mode,
+ * where "mvn -Pnative test" boots the application context as a native image
+ *
+ * @author David Hsing
+ */
+@SpringBootTest(classes = MockApplicationInitializer.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Slf4j
+class MockNativeApplicationTest {
+    private static final Map<String, Object> COUNTRY_RECORD = Map.of("country", Map.of("iso_code", "US", "names", Map.of("en", "United States")));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+    private static final Map<String, Object> CITY_RECORD = Map.of("city", Map.of("names", Map.of("en", "Minneapolis")), "country", COUNTRY_RECORD.get("country"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+    private static final Map<String, Object> ASN_RECORD = Map.of("autonomous_system_number", 217L, "autonomous_system_organization", "UMN-SYSTEM");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+    private static final String IP_ADDRESS = "128.101.101.101";    // $NON-NLS-1$
+    private static MockGeoWebServer webServer;
+
+    @Autowired(required = false)
+    @Qualifier(value = GeoLocationAutoConfiguration.COUNTRY_DATABASE_READER)
+    private DatabaseReader countryReader;
+
+    @Autowired(required = false)
+    @Qualifier(value = GeoLocationAutoConfiguration.ASN_DATABASE_READER)
+    private DatabaseReader asnReader;
+
+    @Autowired(required = false)
+    @Qualifier(value = GeoLocationAutoConfiguration.WEB_SERVICE_CLIENT)
+    private WebServiceClient webServiceClient;
+
+    @Autowired
+    private GeoLocationResolver locationResolver;
+
+    @AfterAll
+    static void stopWebServer() {
+        if (webServer != null) {
+            webServer.close();
+        }
+    }
+
+    /**
+     * Points the databases to the mock ones, and the remote site to the offline stand-in
+     * <p>
+     * In AOT mode, this is also called while processing the context at build time, so everything is created here rather than in the test lifecycle
+     */
+    @DynamicPropertySource
+    static void mockProperties(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("geo-location-native");    // $NON-NLS-1$
+        directory.toFile().deleteOnExit();
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".local-file.country-db", () -> writeDatabase(directory.resolve("country.mmdb"), "GeoLite2-Country", COUNTRY_RECORD));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".local-file.city-db", () -> writeDatabase(directory.resolve("city.mmdb"), "GeoLite2-City", CITY_RECORD));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".local-file.asn-db", () -> writeDatabase(directory.resolve("asn.mmdb"), "GeoLite2-ASN", ASN_RECORD));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        if (webServer == null) {
+            webServer = new MockGeoWebServer();
+        }
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".remote-site.host", () -> "localhost");    // $NON-NLS-1$ // $NON-NLS-2$
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".remote-site.port", () -> webServer.getPort());    // $NON-NLS-1$
+        registry.add(GeoLocationAutoConfiguration.PROPERTIES_PREFIX + ".remote-site.use-https", () -> false);    // $NON-NLS-1$
+    }
+
+    @Test
+    void localDatabases() throws IOException, GeoIp2Exception {
+        Assertions.assertNotNull(countryReader, "Local country reader can not be null");
+        Assertions.assertNotNull(asnReader, "Local asn reader can not be null");
+        InetAddress address = InetAddress.getByName(IP_ADDRESS);
+        Assertions.assertEquals("US", countryReader.country(address).getCountry().getIsoCode());    // $NON-NLS-1$
+        Assertions.assertEquals(217L, asnReader.asn(address).getAutonomousSystemNumber());
+        String compositeAddress = locationResolver.getCompositeAddress(IP_ADDRESS);
+        log.info("IP '{}' composite address is '{}'", IP_ADDRESS, compositeAddress);
+        Assertions.assertEquals("United States/Minneapolis", compositeAddress);    // $NON-NLS-1$
+    }
+
+    @Test
+    void remoteSite() throws IOException, GeoIp2Exception {
+        Assertions.assertNotNull(webServiceClient, "Remote WebServiceClient can not be null");
+        Assertions.assertEquals("Minneapolis", webServiceClient.city(InetAddress.getByName(IP_ADDRESS)).getCity().getName());    // $NON-NLS-1$
+    }
+
+    private static String writeDatabase(Path path, String databaseType, Map<String, Object> record) {
+        try {
+            path.toFile().deleteOnExit();
+            return MockGeoDatabase.write(path, databaseType, record).toString();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
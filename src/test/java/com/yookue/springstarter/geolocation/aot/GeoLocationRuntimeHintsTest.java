@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.aot;
+
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import com.maxmind.db.MaxMindDbConstructor;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.record.Subdivision;
+
+
+class GeoLocationRuntimeHintsTest {
+    @Test
+    void registerHints() {
+        RuntimeHints hints = new RuntimeHints();
+        new GeoLocationRuntimeHints().registerHints(hints, getClass().getClassLoader());
+        for (Class<?> type : Arrays.asList(CityResponse.class, Subdivision.class)) {
+            Constructor<?> constructor = Arrays.stream(type.getDeclaredConstructors()).filter(element -> element.isAnnotationPresent(MaxMindDbConstructor.class)).findFirst().orElseThrow();
+            Assertions.assertTrue(RuntimeHintsPredicates.reflection().onConstructor(constructor).invoke().test(hints));
+        }
+        Assertions.assertTrue(RuntimeHintsPredicates.resource().forResource("ipaddr/GeoLite2-City_20241119/GeoLite2-City.mmdb").test(hints));    // $NON-NLS-1$
+        Assertions.assertTrue(RuntimeHintsPredicates.resource().forResource("GeoLite2-City_20241119.tar.gz").test(hints));    // $NON-NLS-1$
+    }
+}
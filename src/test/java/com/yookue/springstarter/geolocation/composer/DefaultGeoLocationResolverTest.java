@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.composer;
+
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.maxmind.geoip2.record.City;
+import com.maxmind.geoip2.record.Country;
+import com.yookue.springstarter.geolocation.composer.impl.DefaultGeoLocationResolver;
+import com.yookue.springstarter.geolocation.enumeration.GeoLookupStatus;
+import com.yookue.springstarter.geolocation.exception.GeoRemoteUnavailableException;
+import com.yookue.springstarter.geolocation.provider.GeoRemoteProvider;
+import com.yookue.springstarter.geolocation.support.GeoDatabaseRegistry;
+
+
+class DefaultGeoLocationResolverTest {
+    private static final List<String> LOCALES = List.of("en");    // $NON-NLS-1$
+
+    private final GeoLocationResolver resolver = new DefaultGeoLocationResolver(new GeoDatabaseRegistry(), new FakeRemoteProvider(), true);
+
+    @Test
+    void lookupStatuses() {
+        Assertions.assertEquals(GeoLookupStatus.FOUND, resolver.lookupLocation("128.101.101.101").getStatus());    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.NOT_FOUND, resolver.lookupLocation("203.0.113.1").getStatus());    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.LAN_DISCARDED, resolver.lookupLocation("192.168.1.1").getStatus());    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.INVALID_INPUT, resolver.lookupLocation("unknown").getStatus());    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.INVALID_INPUT, resolver.lookupCountry(null).getStatus());
+        Assertions.assertEquals(GeoLookupStatus.REMOTE_ERROR, resolver.lookupCity("198.51.100.1").getStatus());    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.REMOTE_UNAVAILABLE, resolver.lookupCity("198.51.100.2").getStatus());    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.REMOTE_UNAVAILABLE, resolver.lookupLocation("198.51.100.2").getStatus());    // $NON-NLS-1$
+    }
+
+    @Test
+    void lanDiscardedOnBothPaths() throws Exception {
+        for (String ipAddress : new String[] {"192.168.1.1", "100.64.0.1", "fd00::1"}) {    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            Assertions.assertEquals(GeoLookupStatus.LAN_DISCARDED, resolver.lookupCountry(ipAddress).getStatus());
+            Assertions.assertNull(resolver.getCountryName(ipAddress));
+            Assertions.assertNull(resolver.getCompositeAddress(ipAddress));
+        }
+    }
+
+    @Test
+    void quietly() {
+        Assertions.assertEquals("United States/Minneapolis", resolver.getCompositeAddressQuietly("128.101.101.101"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("United States", resolver.getCountryNameQuietly("128.101.101.101"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertNull(resolver.getCityNameQuietly("198.51.100.1"));    // $NON-NLS-1$
+        Assertions.assertNull(resolver.getCityNameQuietly("not an address"));    // $NON-NLS-1$
+    }
+
+
+    @Test
+    void appendCompositeAddress() {
+        StringBuilder builder = new StringBuilder("ip=");    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.FOUND, resolver.appendCompositeAddress("128.101.101.101", builder));    // $NON-NLS-1$
+        Assertions.assertEquals("ip=United States/Minneapolis", builder.toString());    // $NON-NLS-1$
+        builder.setLength(0);
+        Assertions.assertEquals(GeoLookupStatus.FOUND, resolver.appendCompositeAddress("128.101.101.101", builder, ',', Locale.forLanguageTag("en-US")));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(resolver.getCompositeAddressQuietly("128.101.101.101", ',', Locale.forLanguageTag("en-US")), builder.toString());    // $NON-NLS-1$ // $NON-NLS-2$
+        builder.setLength(0);
+        Assertions.assertEquals(GeoLookupStatus.NOT_FOUND, resolver.appendCompositeAddress("203.0.113.1", builder));    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.LAN_DISCARDED, resolver.appendCompositeAddress("192.168.1.1", builder));    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.INVALID_INPUT, resolver.appendCompositeAddress("unknown", builder));    // $NON-NLS-1$
+        Assertions.assertEquals(GeoLookupStatus.REMOTE_ERROR, resolver.appendCompositeAddress("198.51.100.1", builder));    // $NON-NLS-1$
+        Assertions.assertEquals(0, builder.length());
+    }
+
+    private static class FakeRemoteProvider implements GeoRemoteProvider {
+        @Override
+        public Optional<CountryResponse> tryCountry(@Nonnull InetAddress address) throws GeoIp2Exception {
+            return Optional.ofNullable(lookup(address)).map(response -> new CountryResponse(null, response.getCountry(), null, null, null, null));
+        }
+
+        @Override
+        public Optional<CityResponse> tryCity(@Nonnull InetAddress address) throws GeoIp2Exception {
+            return Optional.ofNullable(lookup(address));
+        }
+
+        private CityResponse lookup(@Nonnull InetAddress address) throws GeoIp2Exception {
+            switch (address.getHostAddress()) {
+                case "128.101.101.101":    // $NON-NLS-1$
+                    Country country = new Country(LOCALES, null, 6252001L, false, "US", Map.of("en", "United States"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+                    City city = new City(LOCALES, null, 5037649L, Map.of("en", "Minneapolis"));    // $NON-NLS-1$ // $NON-NLS-2$
+                    return new CityResponse(city, null, country, null, null, null, null, null, null, null);
+                case "198.51.100.1":    // $NON-NLS-1$
+                    throw new GeoIp2Exception("Remote site is down");    // $NON-NLS-1$
+                case "198.51.100.2":    // $NON-NLS-1$
+                    throw new GeoRemoteUnavailableException("Remote site is busy");    // $NON-NLS-1$
+                default:
+                    return null;
+            }
+        }
+    }
+}
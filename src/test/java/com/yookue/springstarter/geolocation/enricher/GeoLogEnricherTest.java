@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.enricher;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.maxmind.geoip2.record.City;
+import com.maxmind.geoip2.record.Country;
+import com.yookue.springstarter.geolocation.composer.impl.DefaultGeoLocationResolver;
+import com.yookue.springstarter.geolocation.model.GeoEnrichReport;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+import com.yookue.springstarter.geolocation.provider.GeoRemoteProvider;
+import com.yookue.springstarter.geolocation.support.GeoDatabaseRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+
+@Slf4j
+class GeoLogEnricherTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void enrichInOrder() throws IOException {
+        CountingProvider provider = new CountingProvider();
+        GeoLocationProperties.LogEnricher properties = new GeoLocationProperties.LogEnricher();
+        properties.setIpColumn(1);
+        properties.setHeader(true);
+        properties.setChunkSize(DataSize.ofBytes(64L));
+        properties.setBatchSize(2);
+        properties.setParallelism(3);
+        GeoLogEnricher enricher = new GeoLogEnricher(new DefaultGeoLocationResolver(new GeoDatabaseRegistry(), provider, true), properties);
+        StringBuilder input = new StringBuilder("time,ip,path\n"), expected = new StringBuilder("time,ip,path,country,city\n");    // $NON-NLS-1$ // $NON-NLS-2$
+        for (int i = 0; i < 500; i++) {
+            String address = "128.101." + (i % 7) + ".1";    // $NON-NLS-1$ // $NON-NLS-2$
+            String path = (i == 42) ? "/" + "x".repeat(300) : "/p" + i;    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            input.append(i).append(',').append(address).append(',').append(path).append(i % 2 == 0 ? "\r\n" : "\n");    // $NON-NLS-1$ // $NON-NLS-2$
+            expected.append(i).append(',').append(address).append(',').append(path).append(",\"Country, ").append(i % 7).append("\",City ").append(i % 7).append('\n');    // $NON-NLS-1$ // $NON-NLS-2$
+        }
+        input.append("500,unknown,/\n");    // $NON-NLS-1$
+        expected.append("500,unknown,/,,\n");    // $NON-NLS-1$
+        Path source = tempDir.resolve("access.log"), target = tempDir.resolve("enriched.log");    // $NON-NLS-1$ // $NON-NLS-2$
+        Files.writeString(source, input, StandardCharsets.UTF_8);
+        GeoEnrichReport report = enricher.enrich(source, target);
+        log.info("Enrich report is {}", report);
+        Assertions.assertEquals(expected.toString(), Files.readString(target, StandardCharsets.UTF_8));
+        Assertions.assertEquals(501L, report.getRows());
+        Assertions.assertEquals(500L, report.getFoundRows());
+        Assertions.assertTrue(provider.calls.get() < 500 * 2);
+    }
+
+    @Test
+    void quotedDelimiters() throws IOException {
+        GeoLocationProperties.LogEnricher properties = new GeoLocationProperties.LogEnricher();
+        properties.setIpColumn(1);
+        GeoLogEnricher enricher = new GeoLogEnricher(new DefaultGeoLocationResolver(new GeoDatabaseRegistry(), new CountingProvider(), true), properties);
+        Path source = tempDir.resolve("access.csv"), target = tempDir.resolve("enriched.csv");    // $NON-NLS-1$ // $NON-NLS-2$
+        Files.writeString(source, "\"GET /a,b\",128.101.1.1\n\"say \"\"hi,\"\"\",\"128.101.2.1\"\n", StandardCharsets.UTF_8);    // $NON-NLS-1$
+        GeoEnrichReport report = enricher.enrich(source, target);
+        Assertions.assertEquals("\"GET /a,b\",128.101.1.1,\"Country, 1\",City 1\n\"say \"\"hi,\"\"\",\"128.101.2.1\",\"Country, 2\",City 2\n", Files.readString(target, StandardCharsets.UTF_8));    // $NON-NLS-1$
+        Assertions.assertEquals(2L, report.getFoundRows());
+    }
+
+
+    private static class CountingProvider implements GeoRemoteProvider {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Optional<CountryResponse> tryCountry(@Nonnull InetAddress address) {
+            calls.incrementAndGet();
+            return Optional.of(new CountryResponse(null, newCountry(address), null, null, null, null));
+        }
+
+        @Override
+        public Optional<CityResponse> tryCity(@Nonnull InetAddress address) {
+            calls.incrementAndGet();
+            City city = new City(List.of("en"), null, null, Map.of("en", "City " + address.getAddress()[2]));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            return Optional.of(new CityResponse(city, null, newCountry(address), null, null, null, null, null, null, null));
+        }
+
+        private Country newCountry(@Nonnull InetAddress address) {
+            return new Country(List.of("en"), null, null, false, null, Map.of("en", "Country, " + address.getAddress()[2]));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.logging;
+
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.yookue.springstarter.geolocation.MockGeoDatabase;
+import com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+import com.yookue.springstarter.geolocation.support.GeoDatabaseRegistry;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+
+class GeoLogConverterTest {
+    private static final Map<String, Object> CITY_RECORD = Map.of("country", Map.of("iso_code", "US", "names", Map.of("en", "United States")), "city", Map.of("names", Map.of("en", "Minneapolis")));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$ // $NON-NLS-9$ // $NON-NLS-10$
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void logbackConverter() throws IOException {
+        GeoDatabaseRegistry registry = newRegistry();
+        try (GeoLogLocator ignored = new GeoLogLocator(registry, true, new GeoLocationProperties.LogConverter())) {
+            GeoLogbackConverter converter = new GeoLogbackConverter();
+            converter.setContext(new LoggerContext());
+            converter.setOptionList(List.of("clientIp"));    // $NON-NLS-1$
+            converter.start();
+            Assertions.assertEquals("United States/Minneapolis", converter.convert(newLogbackEvent("128.101.101.101")));    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals("", converter.convert(newLogbackEvent("192.168.1.1")));    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals("", converter.convert(newLogbackEvent(null)));    // $NON-NLS-1$
+            // Hits are served by the cache, even if the databases are gone
+            registry.close();
+            Assertions.assertEquals("United States/Minneapolis", converter.convert(newLogbackEvent("128.101.101.101")));    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals("", converter.convert(newLogbackEvent("128.101.101.102")));    // $NON-NLS-1$ // $NON-NLS-2$
+        }
+    }
+
+    @Test
+    void log4j2Converter() throws IOException {
+        GeoLog4j2Converter converter = GeoLog4j2Converter.newInstance(new String[] {"clientIp", " | "});    // $NON-NLS-1$ // $NON-NLS-2$
+        try (GeoDatabaseRegistry registry = newRegistry(); GeoLogLocator locator = new GeoLogLocator(registry, true, new GeoLocationProperties.LogConverter())) {
+            StringBuilder builder = new StringBuilder();
+            converter.format(newLog4j2Event("128.101.101.101"), builder);    // $NON-NLS-1$
+            Assertions.assertEquals("United States | Minneapolis", builder.toString());    // $NON-NLS-1$
+            locator.close();
+            builder.setLength(0);
+            converter.format(newLog4j2Event("128.101.101.101"), builder);    // $NON-NLS-1$
+            Assertions.assertEquals(0, builder.length());
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GeoLog4j2Converter.newInstance(null));
+    }
+
+    private GeoDatabaseRegistry newRegistry() throws IOException {
+        String location = MockGeoDatabase.write(tempDir.resolve("city.mmdb"), "GeoLite2-City", CITY_RECORD).toString();    // $NON-NLS-1$ // $NON-NLS-2$
+        return new GeoDatabaseRegistry(Map.of(GeoDatabaseType.COUNTRY, location, GeoDatabaseType.CITY, location), new GeoLocationProperties.LocalFile());
+    }
+
+    private LoggingEvent newLogbackEvent(String ipAddress) {
+        LoggingEvent event = new LoggingEvent();
+        event.setMDCPropertyMap((ipAddress == null) ? Map.of() : Map.of("clientIp", ipAddress));    // $NON-NLS-1$
+        return event;
+    }
+
+    private LogEvent newLog4j2Event(String ipAddress) {
+        SortedArrayStringMap contextData = new SortedArrayStringMap();
+        contextData.putValue("clientIp", ipAddress);    // $NON-NLS-1$
+        return Log4jLogEvent.newBuilder().setContextData(contextData).build();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.provider;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.maxmind.geoip2.record.City;
+import com.maxmind.geoip2.record.Country;
+import com.maxmind.geoip2.record.Location;
+import com.yookue.springstarter.geolocation.provider.impl.CachingRemoteProvider;
+
+
+class CachingRemoteProviderTest {
+    private static final List<String> LOCALES = List.of("en", "de");    // $NON-NLS-1$
+
+    @Test
+    void sharedAcrossNodes() throws IOException, GeoIp2Exception {
+        Cache sharedCache = new ConcurrentMapCacheManager().getCache("geo-remote");    // $NON-NLS-1$
+        CountingProvider delegate = new CountingProvider();
+        CachingRemoteProvider node1 = new CachingRemoteProvider(delegate, 16, sharedCache, LOCALES);
+        CachingRemoteProvider node2 = new CachingRemoteProvider(delegate, 16, sharedCache, LOCALES);
+        InetAddress address = InetAddress.getByName("128.101.101.101");    // $NON-NLS-1$
+        Optional<CityResponse> first = node1.tryCity(address);
+        Optional<CityResponse> second = node2.tryCity(address);
+        Assertions.assertEquals(1, delegate.calls.get());
+        Assertions.assertTrue(first.isPresent() && second.isPresent());
+        Assertions.assertEquals(first.get().getCity().getName(), second.get().getCity().getName());
+        Assertions.assertEquals(first.get().getCountry().getIsoCode(), second.get().getCountry().getIsoCode());
+        Assertions.assertEquals(first.get().getCountry().getNames(), second.get().getCountry().getNames());
+    }
+
+    @Test
+    void notFoundCached() throws IOException, GeoIp2Exception {
+        Cache sharedCache = new ConcurrentMapCacheManager().getCache("geo-remote");    // $NON-NLS-1$
+        CountingProvider delegate = new CountingProvider();
+        CachingRemoteProvider node1 = new CachingRemoteProvider(delegate, 0, sharedCache, LOCALES);
+        CachingRemoteProvider node2 = new CachingRemoteProvider(delegate, 0, sharedCache, LOCALES);
+        InetAddress address = InetAddress.getByName("10.0.0.1");    // $NON-NLS-1$
+        Assertions.assertTrue(node1.tryCountry(address).isEmpty());
+        Assertions.assertTrue(node2.tryCountry(address).isEmpty());
+        Assertions.assertEquals(1, delegate.calls.get());
+    }
+
+    @Test
+    void leastRecentlyUsedEvicted() throws IOException, GeoIp2Exception {
+        CountingProvider delegate = new CountingProvider();
+        CachingRemoteProvider provider = new CachingRemoteProvider(delegate, 2, null, LOCALES);
+        InetAddress address1 = InetAddress.getByName("128.101.101.101"), address2 = InetAddress.getByName("128.101.101.102"), address3 = InetAddress.getByName("128.101.101.103");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        provider.tryCountry(address1);
+        provider.tryCountry(address2);
+        provider.tryCountry(address1);
+        provider.tryCountry(address3);
+        Assertions.assertEquals(3, delegate.calls.get());
+        // The second address is the least recently used one, which has been evicted
+        provider.tryCountry(address1);
+        Assertions.assertEquals(3, delegate.calls.get());
+        provider.tryCountry(address2);
+        Assertions.assertEquals(4, delegate.calls.get());
+    }
+
+    @Test
+    void notFoundExpired() throws IOException, GeoIp2Exception, InterruptedException {
+        Cache sharedCache = new ConcurrentMapCacheManager().getCache("geo-remote");    // $NON-NLS-1$
+        CountingProvider delegate = new CountingProvider();
+        CachingRemoteProvider provider = new CachingRemoteProvider(delegate, 16, Duration.ofHours(1L), Duration.ofMillis(50L), sharedCache, LOCALES);
+        InetAddress found = InetAddress.getByName("128.101.101.101"), notFound = InetAddress.getByName("10.0.0.1");    // $NON-NLS-1$ // $NON-NLS-2$
+        provider.tryCountry(found);
+        provider.tryCountry(notFound);
+        Thread.sleep(100L);
+        Assertions.assertTrue(provider.tryCountry(found).isPresent());
+        Assertions.assertEquals(2, delegate.calls.get());
+        // Expired in both tiers
+        Assertions.assertTrue(provider.tryCountry(notFound).isEmpty());
+        Assertions.assertEquals(3, delegate.calls.get());
+    }
+
+    @Test
+    void sameShapeOnMiss() throws IOException, GeoIp2Exception {
+        CachingRemoteProvider provider = new CachingRemoteProvider(new CountingProvider(), 0, null, LOCALES);
+        Optional<CityResponse> response = provider.tryCity(InetAddress.getByName("128.101.101.101"));    // $NON-NLS-1$
+        Assertions.assertTrue(response.isPresent());
+        Assertions.assertEquals("Minneapolis", response.get().getCity().getName());    // $NON-NLS-1$
+        Assertions.assertNull(response.get().getLocation().getLatitude());
+    }
+
+
+    private static class CountingProvider implements GeoRemoteProvider {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Optional<CountryResponse> tryCountry(@Nonnull InetAddress address) {
+            calls.incrementAndGet();
+            return address.isSiteLocalAddress() ? Optional.empty() : Optional.of(new CountryResponse(null, newCountry(), null, null, null, null));
+        }
+
+        @Override
+        public Optional<CityResponse> tryCity(@Nonnull InetAddress address) {
+            calls.incrementAndGet();
+            return address.isSiteLocalAddress() ? Optional.empty() : Optional.of(new CityResponse(new City(LOCALES, null, 5037649L, Map.of("en", "Minneapolis", "de", "Minneapolis")), null, newCountry(), new Location(null, null, 44.9759D, -93.2166D, null, null, null), null, null, null, null, null, null));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        }
+
+        private Country newCountry() {
+            return new Country(LOCALES, null, 6252001L, false, "US", Map.of("en", "United States", "de", "Vereinigte Staaten"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.provider;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.maxmind.geoip2.WebServiceClient;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import com.yookue.springstarter.geolocation.MockGeoWebServer;
+import com.yookue.springstarter.geolocation.provider.impl.HedgingRemoteProvider;
+import com.yookue.springstarter.geolocation.provider.impl.WebServiceRemoteProvider;
+import lombok.extern.slf4j.Slf4j;
+
+
+@Slf4j
+class HedgingRemoteProviderTest {
+    private static final Duration SLOW_LATENCY = Duration.ofMillis(400L);
+
+    @Test
+    void hedgeSlowRequests() throws IOException, GeoIp2Exception {
+        try (MockGeoWebServer server = new MockGeoWebServer(); WebServiceClient client = server.newClient()) {
+            HedgingRemoteProvider provider = new HedgingRemoteProvider(new WebServiceRemoteProvider(client), 90D, Duration.ofMillis(20L), 0.2D);
+            InetAddress address = InetAddress.getByName("128.101.101.101");    // $NON-NLS-1$
+            warmUp(provider, address);
+            long hedgesBefore = provider.getHedgeCount();
+            server.setSlowLatency(SLOW_LATENCY, 10);
+            long maxNanos = 0L;
+            for (int i = 0; i < 50; i++) {
+                long startTime = System.nanoTime();
+                Optional<CityResponse> response = provider.tryCity(address);
+                maxNanos = Math.max(maxNanos, System.nanoTime() - startTime);
+                Assertions.assertEquals("Minneapolis", response.map(value -> value.getCity().getName()).orElse(null));    // $NON-NLS-1$
+            }
+            log.info("Max latency = {} ms, hedge delay = {}, hedges = {}, hedge wins = {}", maxNanos / 1_000_000L, provider.getHedgeDelay(), provider.getHedgeCount(), provider.getHedgeWinCount());
+            Assertions.assertTrue(provider.getHedgeCount() > hedgesBefore);
+            Assertions.assertTrue(provider.getHedgeWinCount() > 0L);
+            Assertions.assertTrue(provider.getHedgeWinCount() <= provider.getHedgeCount());
+        }
+    }
+
+    @Test
+    void boundedThreads() throws Exception {
+        try (MockGeoWebServer server = new MockGeoWebServer(); WebServiceClient client = server.newClient()) {
+            HedgingRemoteProvider provider = new HedgingRemoteProvider(new WebServiceRemoteProvider(client), 50D, Duration.ofMillis(1L), 1D, 1);
+            InetAddress address = InetAddress.getByName("128.101.101.101");    // $NON-NLS-1$
+            warmUp(provider, address);
+            server.setLatency(Duration.ofMillis(20L));
+            ExecutorService callers = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Optional<CountryResponse>>> futures = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    futures.add(callers.submit(() -> provider.tryCountry(address)));
+                }
+                for (Future<Optional<CountryResponse>> future : futures) {
+                    Assertions.assertTrue(future.get().isPresent());
+                }
+            } finally {
+                callers.shutdownNow();
+            }
+            log.info("Hedges = {}, hedge wins = {}", provider.getHedgeCount(), provider.getHedgeWinCount());
+            Assertions.assertTrue(server.getRequestCount() <= provider.getRequestCount() + provider.getHedgeCount());
+            provider.close();
+        }
+    }
+
+    @Test
+    void hedgeRatioCapped() throws IOException, GeoIp2Exception {
+        try (MockGeoWebServer server = new MockGeoWebServer(); WebServiceClient client = server.newClient()) {
+            HedgingRemoteProvider provider = new HedgingRemoteProvider(new WebServiceRemoteProvider(client), 90D, Duration.ofMillis(5L), 0.1D);
+            InetAddress address = InetAddress.getByName("128.101.101.101");    // $NON-NLS-1$
+            warmUp(provider, address);
+            server.setLatency(Duration.ofMillis(30L));
+            for (int i = 0; i < 40; i++) {
+                Assertions.assertTrue(provider.tryCountry(address).isPresent());
+            }
+            Assertions.assertTrue(provider.getHedgeCount() > 0L);
+            Assertions.assertTrue(provider.getHedgeCount() <= 0.1D * provider.getRequestCount());
+            Assertions.assertTrue(server.getRequestCount() <= provider.getRequestCount() + provider.getHedgeCount());
+        }
+    }
+
+    private void warmUp(HedgingRemoteProvider provider, InetAddress address) throws IOException, GeoIp2Exception {
+        for (int i = 0; i < 200 && provider.getHedgeDelay() == null; i++) {
+            provider.tryCity(address);
+        }
+        for (int i = 0; i < 100; i++) {
+            provider.tryCity(address);
+        }
+        Assertions.assertNotNull(provider.getHedgeDelay());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.provider;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.maxmind.geoip2.WebServiceClient;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.exception.HttpException;
+import com.yookue.springstarter.geolocation.MockGeoWebServer;
+import com.yookue.springstarter.geolocation.composer.GeoLocationResolver;
+import com.yookue.springstarter.geolocation.composer.impl.DefaultGeoLocationResolver;
+import com.yookue.springstarter.geolocation.enumeration.GeoLookupStatus;
+import com.yookue.springstarter.geolocation.provider.impl.LimitingRemoteProvider;
+import com.yookue.springstarter.geolocation.provider.impl.WebServiceRemoteProvider;
+import com.yookue.springstarter.geolocation.support.GeoDatabaseRegistry;
+import com.yookue.springstarter.geolocation.support.GeoRemoteLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+
+@Slf4j
+class WebServiceRemoteIntegrationTest {
+    private static final String IP_ADDRESS = "128.101.101.101";    // $NON-NLS-1$
+    private static final int THREADS = 16;
+
+    @Test
+    void requestTimeout() throws IOException {
+        try (MockGeoWebServer server = new MockGeoWebServer(); WebServiceClient client = server.newClientBuilder().requestTimeout(Duration.ofMillis(100L)).build()) {
+            server.setLatency(Duration.ofSeconds(2L));
+            GeoRemoteProvider provider = new WebServiceRemoteProvider(client);
+            Assertions.assertThrows(HttpTimeoutException.class, () -> provider.tryCountry(InetAddress.getByName(IP_ADDRESS)));
+            GeoLocationResolver resolver = new DefaultGeoLocationResolver(new GeoDatabaseRegistry(), provider, true);
+            Assertions.assertEquals(GeoLookupStatus.REMOTE_ERROR, resolver.lookupCountry(IP_ADDRESS).getStatus());
+        }
+    }
+
+    @Test
+    void faultsWithoutRetries() throws IOException, GeoIp2Exception {
+        try (MockGeoWebServer server = new MockGeoWebServer(); WebServiceClient client = server.newClient()) {
+            GeoRemoteProvider provider = new WebServiceRemoteProvider(client);
+            InetAddress address = InetAddress.getByName(IP_ADDRESS);
+            server.setErrorRate(1D);
+            Assertions.assertEquals(500, Assertions.assertThrows(HttpException.class, () -> provider.tryCountry(address)).getHttpStatus());
+            server.setErrorRate(0D);
+            server.setThrottleRate(1D);
+            Assertions.assertEquals(429, Assertions.assertThrows(HttpException.class, () -> provider.tryCity(address)).getHttpStatus());
+            // Each failed call hits the upstream exactly once, retrying is left to the callers
+            Assertions.assertEquals(2, server.getRequestCount());
+            server.setThrottleRate(0D);
+            Assertions.assertTrue(provider.tryCity(address).isPresent());
+            Assertions.assertTrue(provider.tryCountry(InetAddress.getByName("192.168.1.1")).isEmpty());    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void throughputUnderLoad() throws Exception {
+        try (MockGeoWebServer server = new MockGeoWebServer(); WebServiceClient client = server.newClient()) {
+            server.setLatency(Duration.ofMillis(2L));
+            server.setErrorRate(0.1D);
+            server.setThrottleRate(0.05D);
+            GeoLocationResolver resolver = new DefaultGeoLocationResolver(new GeoDatabaseRegistry(), new WebServiceRemoteProvider(client), true);
+            long startTime = System.nanoTime();
+            Map<GeoLookupStatus, LongAdder> statuses = runConcurrently(resolver, 100);
+            double seconds = (System.nanoTime() - startTime) / 1E9D;
+            long total = THREADS * 100L, found = count(statuses, GeoLookupStatus.FOUND), errors = count(statuses, GeoLookupStatus.REMOTE_ERROR);
+            log.info("Throughput = {} lookups/s, found = {}, remote errors = {}", Math.round(total / seconds), found, errors);
+            Assertions.assertEquals(total, found + errors);
+            long resent = resentRequests(server, total);
+            Assertions.assertTrue(Math.abs(server.getErrorCount() + server.getThrottledCount() - errors) <= resent);
+            Assertions.assertTrue(server.getThrottledCount() > 0 && server.getErrorCount() > 0);
+        }
+    }
+
+    @Test
+    void bulkheadUnderLoad() throws Exception {
+        try (MockGeoWebServer server = new MockGeoWebServer(); WebServiceClient client = server.newClient()) {
+            server.setLatency(Duration.ofMillis(10L));
+            GeoRemoteLimiter limiter = new GeoRemoteLimiter(4, null);
+            GeoLocationResolver resolver = new DefaultGeoLocationResolver(new GeoDatabaseRegistry(), new LimitingRemoteProvider(new WebServiceRemoteProvider(client), limiter), true);
+            Map<GeoLookupStatus, LongAdder> statuses = runConcurrently(resolver, 20);
+            log.info("Max upstream concurrency = {}, rejected = {}", server.getMaxConcurrency(), limiter.getBulkheadRejectedRequests());
+            Assertions.assertTrue(server.getMaxConcurrency() <= 4);
+            Assertions.assertTrue(limiter.getBulkheadRejectedRequests() > 0L);
+            Assertions.assertEquals(limiter.getAcquiredRequests(), count(statuses, GeoLookupStatus.FOUND));
+            resentRequests(server, limiter.getAcquiredRequests());
+            Assertions.assertEquals(limiter.getBulkheadRejectedRequests(), count(statuses, GeoLookupStatus.REMOTE_UNAVAILABLE));
+        }
+    }
+
+    private Map<GeoLookupStatus, LongAdder> runConcurrently(GeoLocationResolver resolver, int lookups) throws Exception {
+        Map<GeoLookupStatus, LongAdder> statuses = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < lookups; j++) {
+                        statuses.computeIfAbsent(resolver.lookupCountry(IP_ADDRESS).getStatus(), key -> new LongAdder()).increment();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return statuses;
+    }
+
+    /**
+     * Returns the number of the requests resent by the JDK client, which resends an idempotent request once if a pooled connection is closed under it
+     */
+    private long resentRequests(MockGeoWebServer server, long calls) {
+        long resent = server.getRequestCount() - calls;
+        Assertions.assertTrue(resent >= 0L && resent <= calls / 100L + 2L, "Unexpected upstream requests " + server.getRequestCount() + " for " + calls + " calls");
+        return resent;
+    }
+
+    private long count(Map<GeoLookupStatus, LongAdder> statuses, GeoLookupStatus status) {
+        LongAdder adder = statuses.get(status);
+        return (adder == null) ? 0L : adder.sum();
+    }
+}
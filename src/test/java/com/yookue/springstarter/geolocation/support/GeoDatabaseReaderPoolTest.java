@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.support;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.yookue.springstarter.geolocation.MockGeoDatabase;
+import com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+
+
+class GeoDatabaseReaderPoolTest {
+    private static final Map<String, Object> COUNTRY_RECORD = Map.of("country", Map.of("iso_code", "US", "names", Map.of("en", "United States")));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void shareAcrossContexts() throws IOException, GeoIp2Exception {
+        GeoLocationProperties.LocalFile localFile = new GeoLocationProperties.LocalFile();
+        localFile.setProcessShared(true);
+        String location = MockGeoDatabase.write(tempDir.resolve("country.mmdb"), "GeoLite2-Country", COUNTRY_RECORD).toString();    // $NON-NLS-1$ // $NON-NLS-2$
+        GeoDatabaseRegistry context1 = new GeoDatabaseRegistry(Map.of(GeoDatabaseType.COUNTRY, location), localFile);
+        GeoDatabaseRegistry context2 = new GeoDatabaseRegistry(Map.of(GeoDatabaseType.COUNTRY, location), localFile);
+        DatabaseReader reader = context1.getReader(GeoDatabaseType.COUNTRY);
+        Assertions.assertSame(reader, context2.getReader(GeoDatabaseType.COUNTRY));
+        Assertions.assertEquals(2, GeoDatabaseReaderPool.getReferenceCount(reader));
+        context1.close();
+        Assertions.assertNotNull(reader);
+        Assertions.assertTrue(reader.tryCountry(InetAddress.getByName("128.101.101.101")).isPresent());    // $NON-NLS-1$
+        context2.close();
+        Assertions.assertEquals(0, GeoDatabaseReaderPool.getReferenceCount(reader));
+        Assertions.assertThrows(Exception.class, () -> reader.tryCountry(InetAddress.getByName("128.101.101.101")));    // $NON-NLS-1$
+    }
+
+    @Test
+    void separateByChecksum() throws IOException {
+        GeoLocationProperties.LocalFile localFile = new GeoLocationProperties.LocalFile();
+        Path path = tempDir.resolve("country.mmdb");    // $NON-NLS-1$
+        MockGeoDatabase.write(path, "GeoLite2-Country", COUNTRY_RECORD);    // $NON-NLS-1$
+        DatabaseReader reader1 = GeoDatabaseReaderPool.acquire(localFile, path.toString());
+        MockGeoDatabase.write(path, "GeoLite2-Country", Map.of("country", Map.of("iso_code", "DE")));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        DatabaseReader reader2 = GeoDatabaseReaderPool.acquire(localFile, path.toString());
+        try {
+            Assertions.assertNotSame(reader1, reader2);
+        } finally {
+            Assertions.assertTrue(GeoDatabaseReaderPool.release(reader1));
+            Assertions.assertTrue(GeoDatabaseReaderPool.release(reader2));
+        }
+    }
+
+    @Test
+    void acquireConcurrently() throws Exception {
+        GeoLocationProperties.LocalFile localFile = new GeoLocationProperties.LocalFile();
+        String location = MockGeoDatabase.write(tempDir.resolve("country.mmdb"), "GeoLite2-Country", COUNTRY_RECORD).toString();    // $NON-NLS-1$ // $NON-NLS-2$
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<DatabaseReader> readers = new ArrayList<>();
+        try {
+            List<Future<DatabaseReader>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> GeoDatabaseReaderPool.acquire(localFile, location)));
+            }
+            for (Future<DatabaseReader> future : futures) {
+                readers.add(future.get());
+            }
+            Assertions.assertEquals(1L, readers.stream().distinct().count());
+            Assertions.assertEquals(16, GeoDatabaseReaderPool.getReferenceCount(readers.get(0)));
+        } finally {
+            executor.shutdownNow();
+            for (DatabaseReader reader : readers) {
+                GeoDatabaseReaderPool.release(reader);
+            }
+        }
+        Assertions.assertEquals(0, GeoDatabaseReaderPool.getReferenceCount(readers.get(0)));
+    }
+}
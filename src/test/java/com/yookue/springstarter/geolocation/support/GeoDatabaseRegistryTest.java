@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.support;
+
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.model.AnonymousIpResponse;
+import com.yookue.springstarter.geolocation.MockGeoDatabase;
+import com.yookue.springstarter.geolocation.composer.impl.DefaultGeoLocationResolver;
+import com.yookue.springstarter.geolocation.enumeration.GeoDatabaseType;
+import com.yookue.springstarter.geolocation.model.GeoLookupResult;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+
+
+class GeoDatabaseRegistryTest {
+    private static final Map<String, Object> COUNTRY_RECORD = Map.of("country", Map.of("iso_code", "US", "names", Map.of("en", "United States")));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+    private static final Map<String, Object> CITY_RECORD = Map.of("city", Map.of("names", Map.of("en", "Minneapolis")), "country", COUNTRY_RECORD.get("country"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void loadOnDemand() throws IOException {
+        Map<GeoDatabaseType, String> locations = Map.of(
+            GeoDatabaseType.COUNTRY, MockGeoDatabase.write(tempDir.resolve("country.mmdb"), "GeoLite2-Country", COUNTRY_RECORD).toString(),    // $NON-NLS-1$ // $NON-NLS-2$
+            GeoDatabaseType.CITY, MockGeoDatabase.write(tempDir.resolve("city.mmdb"), "GeoLite2-City", CITY_RECORD).toString(),    // $NON-NLS-1$ // $NON-NLS-2$
+            GeoDatabaseType.ANONYMOUS_IP, MockGeoDatabase.write(tempDir.resolve("anonymous.mmdb"), "GeoIP2-Anonymous-IP", Map.of("is_anonymous", true, "is_anonymous_vpn", true)).toString()    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        );
+        try (GeoDatabaseRegistry registry = new GeoDatabaseRegistry(locations, new GeoLocationProperties.LocalFile())) {
+            DefaultGeoLocationResolver resolver = new DefaultGeoLocationResolver(registry, null, true);
+            Assertions.assertTrue(registry.getLoadedTypes().isEmpty());
+            GeoLookupResult result = resolver.lookupCountry("128.101.101.101");    // $NON-NLS-1$
+            Assertions.assertEquals("United States", result.getCountryName());    // $NON-NLS-1$
+            Assertions.assertEquals(EnumSet.of(GeoDatabaseType.COUNTRY), registry.getLoadedTypes());
+            AnonymousIpResponse response = resolver.getAnonymousIpQuietly("128.101.101.101");    // $NON-NLS-1$
+            Assertions.assertTrue(response != null && response.isAnonymousVpn());
+            Assertions.assertNull(resolver.getAnonymousIpQuietly("8000::1"));    // $NON-NLS-1$
+            Assertions.assertEquals(EnumSet.of(GeoDatabaseType.COUNTRY, GeoDatabaseType.ANONYMOUS_IP), registry.getLoadedTypes());
+        }
+    }
+
+    @Test
+    void shareReaders() throws IOException {
+        String location = MockGeoDatabase.write(tempDir.resolve("city.mmdb"), "GeoLite2-City", CITY_RECORD).toString();    // $NON-NLS-1$ // $NON-NLS-2$
+        GeoDatabaseRegistry registry = new GeoDatabaseRegistry(Map.of(GeoDatabaseType.COUNTRY, location, GeoDatabaseType.CITY, location), new GeoLocationProperties.LocalFile());
+        Assertions.assertSame(registry.getReader(GeoDatabaseType.COUNTRY), registry.getReader(GeoDatabaseType.CITY));
+        Assertions.assertEquals("United States/Minneapolis", new DefaultGeoLocationResolver(registry, null, true).getCompositeAddressQuietly("128.101.101.101"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertNull(registry.getReader(GeoDatabaseType.ISP));
+        registry.close();
+        Assertions.assertThrows(IOException.class, () -> registry.getReader(GeoDatabaseType.CITY));
+    }
+
+    @Test
+    void failFast() throws IOException {
+        String missing = tempDir.resolve("missing.mmdb").toString();    // $NON-NLS-1$
+        Assertions.assertThrows(FileNotFoundException.class, () -> new GeoDatabaseRegistry(Map.of(GeoDatabaseType.CITY, missing), new GeoLocationProperties.LocalFile()));
+        Path corrupt = Files.writeString(tempDir.resolve("corrupt.mmdb"), "not a database");    // $NON-NLS-1$ // $NON-NLS-2$
+        try (GeoDatabaseRegistry registry = new GeoDatabaseRegistry(Map.of(GeoDatabaseType.CITY, corrupt.toString()), new GeoLocationProperties.LocalFile())) {
+            Assertions.assertThrows(IOException.class, () -> registry.getReader(GeoDatabaseType.CITY));
+            // The failure is remembered, the location is not loaded again
+            MockGeoDatabase.write(corrupt, "GeoLite2-City", CITY_RECORD);    // $NON-NLS-1$
+            Assertions.assertThrows(IOException.class, () -> registry.getReader(GeoDatabaseType.CITY));
+        }
+    }
+
+    @Test
+    void supplierFirst() throws IOException {
+        String location = MockGeoDatabase.write(tempDir.resolve("city.mmdb"), "GeoLite2-City", CITY_RECORD).toString();    // $NON-NLS-1$ // $NON-NLS-2$
+        try (GeoDatabaseRegistry registry = new GeoDatabaseRegistry(Map.of(GeoDatabaseType.COUNTRY, location), new GeoLocationProperties.LocalFile()); DatabaseReader reader = new DatabaseReader.Builder(new File(location)).build()) {
+            AtomicInteger calls = new AtomicInteger();
+            registry.register(GeoDatabaseType.CITY, () -> {
+                calls.incrementAndGet();
+                return reader;
+            });
+            registry.register(GeoDatabaseType.COUNTRY, () -> null);
+            Assertions.assertTrue(registry.contains(GeoDatabaseType.CITY));
+            Assertions.assertEquals(0, calls.get());
+            Assertions.assertSame(reader, registry.getReader(GeoDatabaseType.CITY));
+            Assertions.assertSame(reader, registry.getReader(GeoDatabaseType.CITY));
+            Assertions.assertEquals(1, calls.get());
+            Assertions.assertNotNull(registry.getReader(GeoDatabaseType.COUNTRY));
+            Assertions.assertNotSame(reader, registry.getReader(GeoDatabaseType.COUNTRY));
+        }
+    }
+}
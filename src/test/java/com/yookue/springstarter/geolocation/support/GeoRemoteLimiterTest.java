@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.support;
+
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class GeoRemoteLimiterTest {
+    @Test
+    void concurrencyLimit() {
+        GeoRemoteLimiter limiter = new GeoRemoteLimiter(2, null);
+        Assertions.assertTrue(limiter.tryAcquireConcurrency());
+        Assertions.assertTrue(limiter.tryAcquireConcurrency());
+        Assertions.assertFalse(limiter.tryAcquireConcurrency());
+        limiter.releaseConcurrency();
+        Assertions.assertTrue(limiter.tryAcquireConcurrency());
+        Assertions.assertEquals(2, limiter.getActiveRequests());
+        Assertions.assertEquals(1L, limiter.getBulkheadRejectedRequests());
+    }
+
+    @Test
+    void rateLimit() {
+        GeoRemoteLimiter limiter = new GeoRemoteLimiter(null, 5);
+        int acquired = 0;
+        for (int i = 0; i < 20; i++) {
+            if (limiter.tryAcquireRate()) {
+                acquired++;
+            }
+        }
+        Assertions.assertTrue(acquired >= 5 && acquired < 20);
+        Assertions.assertEquals(20L - acquired, limiter.getRateRejectedRequests());
+    }
+}
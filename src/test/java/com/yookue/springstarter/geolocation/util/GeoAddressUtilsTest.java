@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.util;
+
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class GeoAddressUtilsTest {
+    @Test
+    void validLiterals() throws UnknownHostException {
+        String[] literals = {"128.101.101.101", "0.0.0.0", "255.255.255.255", "::", "::1", "2001:db8::8a2e:370:7334", "2001:0db8:0000:0000:0000:ff00:0042:8329", "1::", "::ffff:192.168.1.1", "64:ff9b::10.0.0.1", "1:2:3:4:5:6:7:8"};    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$ // $NON-NLS-9$ // $NON-NLS-10$ // $NON-NLS-11$
+        for (String literal : literals) {
+            Assertions.assertEquals(InetAddress.getByName(literal), GeoAddressUtils.parseLiteral(literal), literal);
+        }
+        Assertions.assertEquals(InetAddress.getByName("::1"), GeoAddressUtils.parseLiteral(" [::1] "));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(InetAddress.getByName("fe80::1"), GeoAddressUtils.parseLiteral("fe80::1%eth0"));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void invalidLiterals() {
+        String[] literals = {"", " ", "unknown", "localhost", "1.2.3", "1.2.3.4.5", "256.1.1.1", "01.2.3.4", "1.2.3.", "1:2:3:4:5:6:7:8:9", "1::2::3", ":1:2", "1:2:", "12345::", "::g", "[::1", "%eth0"};    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$ // $NON-NLS-9$ // $NON-NLS-10$ // $NON-NLS-11$ // $NON-NLS-12$ // $NON-NLS-13$ // $NON-NLS-14$ // $NON-NLS-15$ // $NON-NLS-16$ // $NON-NLS-17$
+        for (String literal : literals) {
+            Assertions.assertNull(GeoAddressUtils.parseLiteral(literal), literal);
+        }
+    }
+
+    @Test
+    void lanAddresses() {
+        Assertions.assertTrue(GeoAddressUtils.isLanAddress(GeoAddressUtils.parseLiteral("192.168.1.1")));    // $NON-NLS-1$
+        Assertions.assertTrue(GeoAddressUtils.isLanAddress(GeoAddressUtils.parseLiteral("100.64.0.1")));    // $NON-NLS-1$
+        Assertions.assertTrue(GeoAddressUtils.isLanAddress(GeoAddressUtils.parseLiteral("fd00::1")));    // $NON-NLS-1$
+        Assertions.assertFalse(GeoAddressUtils.isLanAddress(GeoAddressUtils.parseLiteral("128.101.101.101")));    // $NON-NLS-1$
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.geolocation.util;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.yookue.springstarter.geolocation.MockGeoDatabase;
+import com.yookue.springstarter.geolocation.property.GeoLocationProperties;
+
+
+class GeoArchiveUtilsTest {
+    private static final Map<String, Object> COUNTRY_RECORD = Map.of("country", Map.of("iso_code", "US", "names", Map.of("en", "United States")));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void extractTarball() throws IOException, GeoIp2Exception {
+        byte[] database = MockGeoDatabase.build("GeoLite2-Country", COUNTRY_RECORD);    // $NON-NLS-1$
+        Path archive = tempDir.resolve("GeoLite2-Country_20220701.tar.gz");    // $NON-NLS-1$
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            writeTarEntry(output, "GeoLite2-Country_20220701/", new byte[0], '5');    // $NON-NLS-1$
+            writeTarEntry(output, "GeoLite2-Country_20220701/COPYRIGHT.txt", "Copyright MaxMind".getBytes(StandardCharsets.UTF_8), '0');    // $NON-NLS-1$ // $NON-NLS-2$
+            writeTarEntry(output, "GeoLite2-Country_20220701/GeoLite2-Country.mmdb", database, '0');    // $NON-NLS-1$
+            output.write(new byte[1024]);
+        }
+        GeoLocationProperties.LocalFile localFile = new GeoLocationProperties.LocalFile();
+        localFile.setExtractDir(tempDir.resolve("extract").toString());    // $NON-NLS-1$
+        try (DatabaseReader reader = GeoDatabaseUtils.getDatabaseReader(localFile, archive.toString())) {
+            Assertions.assertEquals("US", reader.country(InetAddress.getByName("128.101.101.101")).getCountry().getIsoCode());    // $NON-NLS-1$ // $NON-NLS-2$
+        }
+        Path extracted = GeoArchiveUtils.extractDatabase(new FileSystemResource(archive), tempDir.resolve("extract"));    // $NON-NLS-1$
+        Assertions.assertArrayEquals(database, Files.readAllBytes(extracted));
+    }
+
+    @Test
+    void reuseUnchangedArchive() throws IOException {
+        Path archive = tempDir.resolve("GeoLite2-Country.mmdb.gz");    // $NON-NLS-1$
+        writeGzip(archive, MockGeoDatabase.build("GeoLite2-Country", COUNTRY_RECORD));    // $NON-NLS-1$
+        Path directory = tempDir.resolve("extract");    // $NON-NLS-1$
+        Path first = GeoArchiveUtils.extractDatabase(new FileSystemResource(archive), directory);
+        Files.setLastModifiedTime(first, FileTime.from(Files.getLastModifiedTime(first).toInstant().minusSeconds(60L)));
+        Path second = GeoArchiveUtils.extractDatabase(new FileSystemResource(archive), directory);
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(Files.getLastModifiedTime(first), Files.getLastModifiedTime(second));
+        writeGzip(archive, MockGeoDatabase.build("GeoLite2-Country", Map.of("country", Map.of("iso_code", "DE"))));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertNotEquals(first, GeoArchiveUtils.extractDatabase(new FileSystemResource(archive), directory));
+        // The older extraction has been deleted
+        Assertions.assertFalse(Files.exists(first));
+    }
+
+    @Test
+    void untrustedDirectory() throws IOException {
+        Path archive = tempDir.resolve("GeoLite2-Country.mmdb.gz");    // $NON-NLS-1$
+        writeGzip(archive, MockGeoDatabase.build("GeoLite2-Country", COUNTRY_RECORD));    // $NON-NLS-1$
+        Path directory = tempDir.resolve("extract");    // $NON-NLS-1$
+        GeoArchiveUtils.extractDatabase(new FileSystemResource(archive), directory);
+        Assumptions.assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));    // $NON-NLS-1$
+        Assertions.assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(directory));    // $NON-NLS-1$
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));    // $NON-NLS-1$
+        Assertions.assertThrows(AccessDeniedException.class, () -> GeoArchiveUtils.extractDatabase(new FileSystemResource(archive), directory));
+    }
+
+    private void writeGzip(Path path, byte[] content) throws IOException {
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(path))) {
+            output.write(content);
+        }
+    }
+
+    private void writeTarEntry(OutputStream output, String name, byte[] content, char type) throws IOException {
+        byte[] header = new byte[512];
+        putString(header, 0, name);
+        putString(header, 100, "0000644");    // $NON-NLS-1$
+        putString(header, 124, String.format("%011o", content.length));    // $NON-NLS-1$
+        putString(header, 136, String.format("%011o", 0));    // $NON-NLS-1$
+        header[156] = (byte) type;
+        putString(header, 257, "ustar");    // $NON-NLS-1$
+        putString(header, 263, "00");    // $NON-NLS-1$
+        putString(header, 148, "        ");    // $NON-NLS-1$
+        int checksum = 0;
+        for (byte value : header) {
+            checksum += value & 0xFF;
+        }
+        putString(header, 148, String.format("%06o", checksum) + '\0');    // $NON-NLS-1$
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        entry.writeBytes(header);
+        entry.writeBytes(content);
+        entry.writeBytes(new byte[(512 - content.length % 512) % 512]);
+        entry.writeTo(output);
+    }
+
+    private void putString(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}